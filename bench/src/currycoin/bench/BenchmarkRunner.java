@@ -0,0 +1,21 @@
+package currycoin.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/// Runs the benchmarks whose class name matches the first argument, or all of them.
+public class BenchmarkRunner {
+	public static void main(String[] args) throws RunnerException {
+		String include = args.length > 0 ? args[0] : "currycoin.bench.*";
+
+		Options options = new OptionsBuilder()
+				.include(include)
+				.addProfiler(GCProfiler.class)
+				.build();
+
+		new Runner(options).run();
+	}
+}
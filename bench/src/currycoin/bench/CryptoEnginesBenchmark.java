@@ -0,0 +1,72 @@
+package currycoin.bench;
+
+import currycoin.CryptoEngines;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.*;
+import java.security.interfaces.ECPublicKey;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/// Compares looking up a fresh digest or signature engine on every call against reusing the
+/// per-thread engines from {@link CryptoEngines}.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CryptoEnginesBenchmark {
+	private byte[] header;
+	private byte[] message;
+	private byte[] signature;
+	private ECPublicKey publicKey;
+
+	@Setup
+	public void setup() throws GeneralSecurityException {
+		header = new byte[68];
+		ThreadLocalRandom.current().nextBytes(header);
+		message = new byte[32];
+		ThreadLocalRandom.current().nextBytes(message);
+
+		KeyPairGenerator keyPairGen = KeyPairGenerator.getInstance("EC");
+		keyPairGen.initialize(256);
+		KeyPair pair = keyPairGen.generateKeyPair();
+		publicKey = (ECPublicKey) pair.getPublic();
+
+		Signature sig = Signature.getInstance(CryptoEngines.SIGNATURE_ALGORITHM);
+		sig.initSign(pair.getPrivate());
+		sig.update(message);
+		signature = sig.sign();
+	}
+
+	@Benchmark
+	public byte[] digestPerCallLookup() throws NoSuchAlgorithmException {
+		MessageDigest digest = MessageDigest.getInstance(CryptoEngines.DIGEST_ALGORITHM);
+		digest.update(header);
+		return digest.digest();
+	}
+
+	@Benchmark
+	public byte[] digestThreadLocal() {
+		MessageDigest digest = CryptoEngines.sha256();
+		digest.update(header);
+		return digest.digest();
+	}
+
+	@Benchmark
+	public boolean verifyPerCallLookup() throws GeneralSecurityException {
+		Signature sig = Signature.getInstance(CryptoEngines.SIGNATURE_ALGORITHM);
+		sig.initVerify(publicKey);
+		sig.update(message);
+		return sig.verify(signature);
+	}
+
+	@Benchmark
+	public boolean verifyThreadLocal() throws GeneralSecurityException {
+		Signature sig = CryptoEngines.ecdsa();
+		sig.initVerify(publicKey);
+		sig.update(message);
+		return sig.verify(signature);
+	}
+}
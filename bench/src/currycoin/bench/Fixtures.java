@@ -0,0 +1,111 @@
+package currycoin.bench;
+
+import currycoin.CryptoEngines;
+import currycoin.Hash;
+import currycoin.script.ByteArray;
+import currycoin.script.Script;
+import currycoin.script.instructions.ConditionalBlock;
+import currycoin.script.instructions.Instruction;
+
+import java.nio.ByteBuffer;
+import java.security.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static currycoin.script.instructions.ConditionalBlock.whenFalse;
+import static currycoin.script.instructions.LoadInstruction.loadInt;
+import static currycoin.script.instructions.LoadInstruction.ofData;
+import static currycoin.script.instructions.OrdinaryInstruction.*;
+
+/// Keys, signatures and representative scripts shared by the benchmarks.
+final class Fixtures {
+	static final Hash DATA_TO_SIGN = Hash.empty();
+
+	final ByteArray[] publicKeys;
+	final ByteArray[] signatures;
+
+	Fixtures(int keys) {
+		try {
+			KeyPairGenerator keyPairGen = KeyPairGenerator.getInstance("EC");
+			keyPairGen.initialize(256);
+
+			publicKeys = new ByteArray[keys];
+			signatures = new ByteArray[keys];
+			for (int i = 0; i < keys; i++) {
+				KeyPair pair = keyPairGen.generateKeyPair();
+				publicKeys[i] = new ByteArray(pair.getPublic().getEncoded());
+
+				Signature sig = Signature.getInstance(CryptoEngines.SIGNATURE_ALGORITHM);
+				sig.initSign(pair.getPrivate());
+				sig.update(DATA_TO_SIGN.data());
+				signatures[i] = new ByteArray(sig.sign());
+			}
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/// The script from `Main`: some arithmetic followed by a pay-to-public-key check.
+	Script payToPublicKey() {
+		return Script.of(
+				loadInt(0xABCD),
+				loadInt(1),
+				loadInt(2),
+				DUPLICATE_TWO,
+				ARITHMETIC_ADD,
+				ROTATE_THREE,
+				ROTATE_THREE,
+				ARITHMETIC_SUB,
+				ofData(signatures[0]),
+				ofData(publicKeys[0]),
+				SIGNATURE_CHECK,
+				whenFalse(RETURN_FAIL)
+		);
+	}
+
+	/// An m-of-n multi-signature check where the first m keys signed.
+	Script multiSignature(int m, int n) {
+		List<Instruction> instructions = new ArrayList<>();
+		for (int i = m - 1; i >= 0; i--) {
+			instructions.add(ofData(signatures[i]));
+		}
+		instructions.add(loadInt(m));
+		for (int i = n - 1; i >= 0; i--) {
+			instructions.add(ofData(publicKeys[i]));
+		}
+		instructions.add(loadInt(n));
+		instructions.add(SIGNATURE_CHECK_MULTI_VERIFY);
+		return new Script(instructions);
+	}
+
+	/// Conditionals nested to the given depth, each taking its true branch and doing some arithmetic.
+	static Script nestedConditionals(int depth) {
+		List<Instruction> body = List.of(loadInt(1), loadInt(2), ARITHMETIC_ADD, DROP_ITEM);
+		for (int i = 0; i < depth; i++) {
+			List<Instruction> whenTrue = new ArrayList<>();
+			whenTrue.add(loadInt(3));
+			whenTrue.add(DROP_ITEM);
+			whenTrue.add(loadInt(1));
+			whenTrue.add(new ConditionalBlock(body, List.of()));
+			body = whenTrue;
+		}
+
+		List<Instruction> instructions = new ArrayList<>(body.size() + 1);
+		instructions.add(loadInt(1));
+		instructions.add(new ConditionalBlock(body, List.of(RETURN_FAIL)));
+		return new Script(instructions);
+	}
+
+	static Hash randomHash(Random random) {
+		byte[] data = new byte[32];
+		random.nextBytes(data);
+		return new Hash(data);
+	}
+
+	static ByteBuffer encode(Script script) {
+		ByteBuffer buffer = ByteBuffer.allocate(script.byteSize());
+		script.apply(buffer);
+		return buffer.flip();
+	}
+}
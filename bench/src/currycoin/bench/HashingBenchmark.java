@@ -0,0 +1,46 @@
+package currycoin.bench;
+
+import currycoin.BlockHeader;
+import currycoin.Hash;
+import currycoin.script.Script;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/// Hashing block headers and scripts.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HashingBenchmark {
+	private BlockHeader header;
+	private Script script;
+	private int nonce;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		header = new BlockHeader(Fixtures.randomHash(random), Fixtures.randomHash(random), 0);
+		script = new Fixtures(15).multiSignature(11, 15);
+	}
+
+	@Benchmark
+	public Hash blockHeader() {
+		return new BlockHeader(header.prevHash(), header.transHash(), nonce++).hash();
+	}
+
+	/// A script that has not been hashed before, as when a new transaction arrives.
+	@Benchmark
+	public Hash scriptFirstHash() {
+		return new Script(script.instructions()).hash();
+	}
+
+	/// The same script hashed again, as when several outputs are matched against it.
+	@Benchmark
+	public Hash scriptRepeatedHash() {
+		return script.hash();
+	}
+}
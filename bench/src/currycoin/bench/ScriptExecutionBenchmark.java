@@ -0,0 +1,53 @@
+package currycoin.bench;
+
+import currycoin.script.Script;
+import currycoin.script.ScriptStack;
+import currycoin.script.compiler.CompiledScript;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/// Running representative scripts through the tree interpreter and the compiled program.
+///
+/// Signatures are verified once during setup, so the signature cache is warm and these numbers
+/// show interpreter overhead rather than ECDSA; see {@link SignatureBenchmark} for the latter.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScriptExecutionBenchmark {
+	@Param({"payToPublicKey", "multiSignature", "nestedConditionals"})
+	public String script;
+
+	private Script tree;
+	private CompiledScript compiled;
+
+	@Setup
+	public void setup() {
+		Fixtures fixtures = new Fixtures(15);
+		tree = switch (script) {
+			case "payToPublicKey" -> fixtures.payToPublicKey();
+			case "multiSignature" -> fixtures.multiSignature(11, 15);
+			case "nestedConditionals" -> Fixtures.nestedConditionals(19);
+			default -> throw new IllegalArgumentException(script);
+		};
+		compiled = CompiledScript.compile(tree);
+		tree.execute(new ScriptStack(Fixtures.DATA_TO_SIGN));
+	}
+
+	@Benchmark
+	public ScriptStack tree() {
+		ScriptStack stack = new ScriptStack(Fixtures.DATA_TO_SIGN);
+		tree.execute(stack);
+		return stack;
+	}
+
+	@Benchmark
+	public ScriptStack compiled() {
+		ScriptStack stack = new ScriptStack(Fixtures.DATA_TO_SIGN);
+		compiled.execute(stack);
+		return stack;
+	}
+}
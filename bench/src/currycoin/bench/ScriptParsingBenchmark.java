@@ -0,0 +1,48 @@
+package currycoin.bench;
+
+import currycoin.script.Script;
+import currycoin.script.instructions.Instruction;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/// Decoding scripts and single instructions from their serialized form.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScriptParsingBenchmark {
+	@Param({"payToPublicKey", "multiSignature", "nestedConditionals"})
+	public String script;
+
+	private ByteBuffer encoded;
+
+	@Setup
+	public void setup() {
+		Fixtures fixtures = new Fixtures(15);
+		Script selected = switch (script) {
+			case "payToPublicKey" -> fixtures.payToPublicKey();
+			case "multiSignature" -> fixtures.multiSignature(11, 15);
+			case "nestedConditionals" -> Fixtures.nestedConditionals(19);
+			default -> throw new IllegalArgumentException(script);
+		};
+		encoded = Fixtures.encode(selected);
+	}
+
+	@Benchmark
+	public Script parseScript() {
+		return Script.parseFrom(encoded.duplicate());
+	}
+
+	@Benchmark
+	public void parseInstructions(Blackhole blackhole) {
+		ByteBuffer buffer = encoded.duplicate();
+		while (buffer.hasRemaining()) {
+			blackhole.consume(Instruction.parseFrom(buffer));
+		}
+	}
+}
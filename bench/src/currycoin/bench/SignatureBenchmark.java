@@ -0,0 +1,38 @@
+package currycoin.bench;
+
+import currycoin.script.ByteArray;
+import currycoin.script.SignatureCache;
+import currycoin.script.SignatureVerifier;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/// A single signature check, with and without a hit in the signature cache.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SignatureBenchmark {
+	private ByteArray signature;
+	private ByteArray publicKey;
+
+	@Setup
+	public void setup() {
+		Fixtures fixtures = new Fixtures(1);
+		signature = fixtures.signatures[0];
+		publicKey = fixtures.publicKeys[0];
+	}
+
+	@Benchmark
+	public boolean checkSignature() {
+		SignatureCache.shared().clear();
+		return SignatureVerifier.verify(signature, publicKey, Fixtures.DATA_TO_SIGN);
+	}
+
+	@Benchmark
+	public boolean checkSignatureCached() {
+		return SignatureVerifier.verify(signature, publicKey, Fixtures.DATA_TO_SIGN);
+	}
+}
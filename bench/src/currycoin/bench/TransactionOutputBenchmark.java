@@ -0,0 +1,43 @@
+package currycoin.bench;
+
+import currycoin.TransactionOutput;
+import currycoin.script.Script;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/// Serializing and deserializing transaction outputs of both verification kinds.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionOutputBenchmark {
+	@Param({"scriptMatch", "scriptHash"})
+	public String verification;
+
+	private TransactionOutput output;
+	private ByteBuffer buffer;
+
+	@Setup
+	public void setup() {
+		Script script = new Fixtures(3).multiSignature(2, 3);
+		output = new TransactionOutput(50_000, switch (verification) {
+			case "scriptMatch" -> new TransactionOutput.ScriptMatch(script);
+			case "scriptHash" -> new TransactionOutput.ScriptHash(Fixtures.randomHash(new Random(42)));
+			default -> throw new IllegalArgumentException(verification);
+		});
+		buffer = ByteBuffer.allocate(output.byteSize());
+	}
+
+	@Benchmark
+	public TransactionOutput roundTrip() {
+		buffer.clear();
+		output.apply(buffer);
+		buffer.flip();
+		return TransactionOutput.parseFrom(buffer);
+	}
+}
@@ -1,18 +1,45 @@
 package currycoin;
 
-import java.security.*;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
 
 /// The header of a block.
 public record BlockHeader(Hash prevHash, Hash transHash, int nonce) {
+    public static final int BYTES = 2 * Hash.BYTES + Integer.BYTES;
 
-    public Hash hash() throws NoSuchAlgorithmException {
-        MessageDigest mess = MessageDigest.getInstance("SHA-256");
-        mess.update(prevHash.data());
-        mess.update(transHash.data());
+    public Hash hash() {
+        MessageDigest mess = CryptoEngines.sha256();
+        prevHash.addToDigest(mess);
+        transHash.addToDigest(mess);
 
         for (int i = 0; i < 4; i++) {
             mess.update((byte) (nonce >> (i*8)));
         }
         return new Hash(mess.digest());
     }
-}
\ No newline at end of file
+
+    public int byteSize() {
+        return BYTES;
+    }
+
+    /**
+     * Writes the header as it is hashed, with the nonce little endian.
+     */
+    public void apply(ByteBuffer buffer) {
+        prevHash.apply(buffer);
+        transHash.apply(buffer);
+        for (int i = 0; i < 4; i++) {
+            buffer.put((byte) (nonce >> (i*8)));
+        }
+    }
+
+    public static BlockHeader parseFrom(ByteBuffer buffer) {
+        Hash prevHash = Hash.parseFrom(buffer);
+        Hash transHash = Hash.parseFrom(buffer);
+        int nonce = 0;
+        for (int i = 0; i < 4; i++) {
+            nonce |= (buffer.get() & 0xFF) << (i*8);
+        }
+        return new BlockHeader(prevHash, transHash, nonce);
+    }
+}
@@ -0,0 +1,51 @@
+package currycoin;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Signature;
+
+/// Hands out reusable, per-thread instances of the digest and signature engines.
+///
+/// Looking up a provider and constructing an engine costs far more than hashing a block header,
+/// so every thread keeps one instance of each and gets it back reset. The returned engines
+/// belong to the calling thread: finish with one (`digest()`, `verify()`) before calling into
+/// anything else that may use the same engine, and never hand it to another thread.
+public final class CryptoEngines {
+	public static final String DIGEST_ALGORITHM = "SHA-256";
+	public static final String SIGNATURE_ALGORITHM = "SHA256withECDSA";
+
+	private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+		try {
+			return MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 not supported", e);
+		}
+	});
+
+	private static final ThreadLocal<Signature> ECDSA = ThreadLocal.withInitial(() -> {
+		try {
+			return Signature.getInstance(SIGNATURE_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA256withECDSA not supported", e);
+		}
+	});
+
+	private CryptoEngines() { }
+
+	/**
+	 * Returns this thread's SHA-256 digest, reset and ready for use.
+	 */
+	public static MessageDigest sha256() {
+		MessageDigest digest = SHA256.get();
+		digest.reset();
+		return digest;
+	}
+
+	/**
+	 * Returns this thread's SHA256withECDSA engine. It must be initialized with
+	 * {@code initVerify} or {@code initSign} before use, which also resets it.
+	 */
+	public static Signature ecdsa() {
+		return ECDSA.get();
+	}
+}
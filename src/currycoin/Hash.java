@@ -1,57 +1,173 @@
 package currycoin;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.nio.ByteBuffer;
-import java.util.Arrays;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+import java.security.Signature;
+import java.security.SignatureException;
 
-/// Creates a safe Hash Record which can store a hash, and return it in various forms.
-public record Hash(byte[] data) {
+/// Creates a safe Hash which can store a hash, and return it in various forms.
+///
+/// The 32 bytes are kept as four big-endian longs, so hashes compare, order and hash as
+/// primitives, and are written out without ever exposing or copying an array.
+public final class Hash implements Comparable<Hash> {
+    public static final int BYTES = 32;
 
-    public Hash {
-        if (data.length != 32) {
+    private final long word0;
+    private final long word1;
+    private final long word2;
+    private final long word3;
+    private final int hashCode;
+
+    public Hash(byte[] data) {
+        this(wordAt(checkLength(data), 0), wordAt(data, 8), wordAt(data, 16), wordAt(data, 24));
+    }
+
+    private Hash(long word0, long word1, long word2, long word3) {
+        this.word0 = word0;
+        this.word1 = word1;
+        this.word2 = word2;
+        this.word3 = word3;
+        this.hashCode = mix(word0 ^ Long.rotateLeft(word1, 16) ^ Long.rotateLeft(word2, 32) ^ Long.rotateLeft(word3, 48));
+    }
+
+    private static byte[] checkLength(byte[] data) {
+        if (data.length != BYTES) {
             throw new IllegalArgumentException("Must be 32 bytes long!");
         }
-        data = data.clone();
+        return data;
+    }
+
+    private static long wordAt(byte[] data, int offset) {
+        long word = 0;
+        for (int i = offset; i < offset + Long.BYTES; i++) {
+            word = (word << 8) | (data[i] & 0xff);
+        }
+        return word;
     }
 
     public byte[] data() {
-        return data.clone();
+        byte[] data = new byte[BYTES];
+        apply(ByteBuffer.wrap(data));
+        return data;
+    }
+
+    /**
+     * Returns one of the four 8 byte words of the hash, read big endian.
+     */
+    public long word(int index) {
+        return switch (index) {
+            case 0 -> word0;
+            case 1 -> word1;
+            case 2 -> word2;
+            case 3 -> word3;
+            default -> throw new IndexOutOfBoundsException("Word " + index + " out of bounds for length 4");
+        };
     }
 
+    @Override
     public boolean equals(Object o) {
-        return o instanceof Hash h && Arrays.equals(h.data, data);
+        return o instanceof Hash h
+                && h.word0 == word0 && h.word1 == word1 && h.word2 == word2 && h.word3 == word3;
     }
 
+    @Override
     public int hashCode() {
-        return Arrays.hashCode(data);
+        return hashCode;
+    }
+
+    /**
+     * Orders hashes like their bytes, compared as unsigned numbers.
+     */
+    @Override
+    public int compareTo(Hash o) {
+        int result = Long.compareUnsigned(word0, o.word0);
+        if (result == 0) result = Long.compareUnsigned(word1, o.word1);
+        if (result == 0) result = Long.compareUnsigned(word2, o.word2);
+        if (result == 0) result = Long.compareUnsigned(word3, o.word3);
+        return result;
     }
 
+    @Override
     public String toString() {
-        return bytesToHex(data);
+        char[] hex = new char[BYTES * 2];
+        appendHex(hex, 0, word0);
+        appendHex(hex, 16, word1);
+        appendHex(hex, 32, word2);
+        appendHex(hex, 48, word3);
+        return new String(hex);
     }
 
-    private static String bytesToHex(byte[] arr) {
-        StringBuilder hex = new StringBuilder();
-        for (byte i : arr) {
-            hex.append(String.format("%02x", i));
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static void appendHex(char[] hex, int offset, long word) {
+        for (int i = 15; i >= 0; i--) {
+            hex[offset + i] = HEX_DIGITS[(int) word & 0xf];
+            word >>>= 4;
         }
-        return hex.toString();
+    }
+
+    // murmur3 finalizer, hashes are usually random but nothing guarantees it
+    private static int mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51_afd7_ed55_8ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ce_b9fe_1a85_ec53L;
+        value ^= value >>> 33;
+        return (int) value;
     }
 
     public static Hash parseFrom(ByteBuffer buffer) {
-        byte[] data = new byte[32];
-        buffer.get(data);
-        return new Hash(data);
+        boolean swap = buffer.order() != ByteOrder.BIG_ENDIAN; // the bytes go in order regardless
+        long word0 = buffer.getLong();
+        long word1 = buffer.getLong();
+        long word2 = buffer.getLong();
+        long word3 = buffer.getLong();
+        return swap
+                ? new Hash(Long.reverseBytes(word0), Long.reverseBytes(word1), Long.reverseBytes(word2), Long.reverseBytes(word3))
+                : new Hash(word0, word1, word2, word3);
     }
 
     public int byteSize() {
-        return 32;
+        return BYTES;
     }
 
     public void apply(ByteBuffer buffer) {
-        buffer.put(data);
+        if (buffer.order() == ByteOrder.BIG_ENDIAN) {
+            buffer.putLong(word0).putLong(word1).putLong(word2).putLong(word3);
+        } else {
+            buffer.putLong(Long.reverseBytes(word0)).putLong(Long.reverseBytes(word1))
+                    .putLong(Long.reverseBytes(word2)).putLong(Long.reverseBytes(word3));
+        }
+    }
+
+    public void addToDigest(MessageDigest digest) {
+        digest.update(scratch(), 0, BYTES);
     }
 
-    private static final Hash EMPTY = new Hash(new byte[32]);
+    public void addToSignature(Signature signature) throws SignatureException {
+        signature.update(scratch(), 0, BYTES);
+    }
+
+    /**
+     * Writes the hash into this thread's scratch array, so it can be fed to an engine in one call
+     * without allocating. The array is overwritten by the next call on the same thread.
+     */
+    private byte[] scratch() {
+        byte[] scratch = SCRATCH.get();
+        LONGS.set(scratch, 0, word0);
+        LONGS.set(scratch, 8, word1);
+        LONGS.set(scratch, 16, word2);
+        LONGS.set(scratch, 24, word3);
+        return scratch;
+    }
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[BYTES]);
+
+    private static final Hash EMPTY = new Hash(0, 0, 0, 0);
 
     public static Hash empty() {
         return EMPTY;
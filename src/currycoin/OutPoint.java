@@ -0,0 +1,23 @@
+package currycoin;
+
+import java.nio.ByteBuffer;
+
+/// Points at an output by the hash of the transaction that created it and its index there.
+public record OutPoint(Hash transaction, int index) {
+	public static final int BYTES = 32 + Integer.BYTES;
+
+	public int byteSize() {
+		return BYTES;
+	}
+
+	public void apply(ByteBuffer buffer) {
+		transaction.apply(buffer);
+		buffer.putInt(index);
+	}
+
+	public static OutPoint parseFrom(ByteBuffer buffer) {
+		Hash transaction = Hash.parseFrom(buffer);
+		int index = buffer.getInt();
+		return new OutPoint(transaction, index);
+	}
+}
@@ -0,0 +1,258 @@
+package currycoin;
+
+import currycoin.script.Script;
+import currycoin.script.ScriptException;
+import currycoin.validation.InputCheck;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+/// A transaction, spending the outputs its inputs point at to create its own outputs.
+///
+/// It is encoded as the number of inputs, the inputs, the number of outputs and the outputs,
+/// each in its own {@code apply} encoding, and identified by the SHA-256 of that encoding.
+///
+/// The data an input signs leaves out every unlocking script, so signatures can be added
+/// without changing it. For input `i` it is
+///
+///     SHA-256(prevouts || outputs || i || outpoint[i] || locking script[i])
+///
+/// where `prevouts` is the SHA-256 of all outpoints and `outputs` that of all outputs, with
+/// scripts written with their length as in the encoding. Those two hashes are computed once
+/// per transaction, and the digest state after them is copied for every input, so all inputs
+/// together take time linear in the size of the transaction.
+///
+/// The txid and the signature hashes are computed on first use and kept.
+public final class Transaction {
+	// an input with two empty scripts, and an output with an empty script
+	private static final int MIN_INPUT_BYTES = OutPoint.BYTES + 2 * Integer.BYTES;
+	private static final int MIN_OUTPUT_BYTES = Long.BYTES + Integer.BYTES;
+
+	private final List<TransactionInput> inputs;
+	private final List<TransactionOutput> outputs;
+
+	private volatile Hash txid;
+	private volatile List<Hash> signatureHashes;
+
+	public Transaction(List<TransactionInput> inputs, List<TransactionOutput> outputs) {
+		this.inputs = List.copyOf(inputs);
+		this.outputs = List.copyOf(outputs);
+	}
+
+	public List<TransactionInput> inputs() {
+		return inputs;
+	}
+
+	public List<TransactionOutput> outputs() {
+		return outputs;
+	}
+
+	public Hash txid() {
+		Hash result = txid;
+		if (result == null) {
+			MessageDigest digest = CryptoEngines.sha256();
+			addToDigest(digest, inputs.size());
+			for (TransactionInput input : inputs) {
+				addToDigest(digest, input.outPoint());
+				addToDigest(digest, input.lockingScript());
+				addToDigest(digest, input.unlockingScript());
+			}
+			addToDigest(digest, outputs.size());
+			for (TransactionOutput output : outputs) {
+				addToDigest(digest, output);
+			}
+			txid = result = new Hash(digest.digest());
+		}
+		return result;
+	}
+
+	/**
+	 * The data the unlocking script of the given input signs, which is what its
+	 * {@link currycoin.script.ScriptStack} checks signatures against.
+	 */
+	public Hash signatureHash(int input) {
+		return signatureHashes().get(input);
+	}
+
+	/**
+	 * The signature hashes of all inputs, in order.
+	 */
+	public List<Hash> signatureHashes() {
+		List<Hash> result = signatureHashes;
+		if (result == null) {
+			signatureHashes = result = computeSignatureHashes();
+		}
+		return result;
+	}
+
+	private List<Hash> computeSignatureHashes() {
+		MessageDigest digest = CryptoEngines.sha256();
+		for (TransactionInput input : inputs) {
+			addToDigest(digest, input.outPoint());
+		}
+		Hash prevouts = new Hash(digest.digest());
+		for (TransactionOutput output : outputs) {
+			addToDigest(digest, output);
+		}
+		Hash outputsHash = new Hash(digest.digest());
+
+		// the two hashes fill exactly one block, so the state after them is all that is left to copy
+		prevouts.addToDigest(digest);
+		outputsHash.addToDigest(digest);
+		MessageDigest midstate = copy(digest);
+
+		List<Hash> hashes = new ArrayList<>(inputs.size());
+		for (int i = 0; i < inputs.size(); i++) {
+			MessageDigest inputDigest = midstate != null ? copy(midstate) : null;
+			if (inputDigest == null) { // the provider cannot copy its state, so start over
+				inputDigest = CryptoEngines.sha256();
+				prevouts.addToDigest(inputDigest);
+				outputsHash.addToDigest(inputDigest);
+			}
+
+			TransactionInput input = inputs.get(i);
+			addToDigest(inputDigest, i);
+			addToDigest(inputDigest, input.outPoint());
+			addToDigest(inputDigest, input.lockingScript());
+			hashes.add(new Hash(inputDigest.digest()));
+		}
+		return List.copyOf(hashes);
+	}
+
+	private static MessageDigest copy(MessageDigest digest) {
+		try {
+			return (MessageDigest) digest.clone();
+		} catch (CloneNotSupportedException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Pairs every input with its signature hash, ready for an {@link currycoin.validation.InputValidator}.
+	 */
+	public List<InputCheck> inputChecks() {
+		List<Hash> hashes = signatureHashes();
+		List<InputCheck> checks = new ArrayList<>(inputs.size());
+		for (int i = 0; i < inputs.size(); i++) {
+			checks.add(new InputCheck(inputs.get(i), hashes.get(i)));
+		}
+		return checks;
+	}
+
+	public int byteSize() {
+		int size = 2 * Integer.BYTES;
+		for (TransactionInput input : inputs) {
+			size += input.byteSize();
+		}
+		for (TransactionOutput output : outputs) {
+			size += output.byteSize();
+		}
+		return size;
+	}
+
+	public void apply(ByteBuffer buffer) {
+		buffer.putInt(inputs.size());
+		for (TransactionInput input : inputs) {
+			input.apply(buffer);
+		}
+		buffer.putInt(outputs.size());
+		for (TransactionOutput output : outputs) {
+			output.apply(buffer);
+		}
+	}
+
+	/**
+	 * @throws ScriptException.InvalidScriptException if the encoding is malformed or truncated, or
+	 * the script of an input is not valid
+	 */
+	public static Transaction parseFrom(ByteBuffer buffer) throws ScriptException.InvalidScriptException {
+		try {
+			int inputCount = checkCount(buffer, MIN_INPUT_BYTES);
+			List<TransactionInput> inputs = new ArrayList<>(inputCount);
+			for (int i = 0; i < inputCount; i++) {
+				inputs.add(TransactionInput.parseFrom(buffer));
+			}
+
+			int outputCount = checkCount(buffer, MIN_OUTPUT_BYTES);
+			List<TransactionOutput> outputs = new ArrayList<>(outputCount);
+			for (int i = 0; i < outputCount; i++) {
+				outputs.add(TransactionOutput.parseFrom(buffer));
+			}
+			return new Transaction(inputs, outputs);
+		} catch (BufferUnderflowException e) {
+			throw new ScriptException.InvalidScriptException("Unexpected end of transaction", e);
+		}
+	}
+
+	/**
+	 * Reads a count of items, which must fit into the rest of the buffer however small each is.
+	 */
+	private static int checkCount(ByteBuffer buffer, int minBytes) throws ScriptException.InvalidScriptException {
+		int count = buffer.getInt();
+		if (count < 0 || count > buffer.remaining() / minBytes) {
+			throw new ScriptException.InvalidScriptException("Count " + count + " out of bounds, " + buffer.remaining() + " bytes remaining");
+		}
+		return count;
+	}
+
+	// the digest is fed the same bytes apply writes into a big endian buffer, numbers going
+	// through a per-thread scratch array so each is a single update
+
+	private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+	private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+	private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[Long.BYTES]);
+
+	private static void addToDigest(MessageDigest digest, OutPoint outPoint) {
+		outPoint.transaction().addToDigest(digest);
+		addToDigest(digest, outPoint.index());
+	}
+
+	private static void addToDigest(MessageDigest digest, Script script) {
+		addToDigest(digest, script.byteSize());
+		script.encoded().addToDigest(digest);
+	}
+
+	private static void addToDigest(MessageDigest digest, TransactionOutput output) {
+		byte[] scratch = SCRATCH.get();
+		LONG.set(scratch, 0, output.value());
+		digest.update(scratch, 0, Long.BYTES);
+
+		switch (output.verification()) {
+			case TransactionOutput.ScriptHash scriptHash -> {
+				addToDigest(digest, TransactionOutput.OutputVerification.HASH_OPCODE);
+				scriptHash.scriptHash().addToDigest(digest);
+			}
+			case TransactionOutput.ScriptMatch scriptMatch -> {
+				addToDigest(digest, scriptMatch.encoded().length());
+				scriptMatch.encoded().addToDigest(digest);
+			}
+		}
+	}
+
+	private static void addToDigest(MessageDigest digest, int value) {
+		byte[] scratch = SCRATCH.get();
+		INT.set(scratch, 0, value);
+		digest.update(scratch, 0, Integer.BYTES);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o == this || o instanceof Transaction t && inputs.equals(t.inputs) && outputs.equals(t.outputs);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * inputs.hashCode() + outputs.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return "Transaction[inputs=" + inputs + ", outputs=" + outputs + "]";
+	}
+}
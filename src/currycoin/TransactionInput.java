@@ -1,22 +1,101 @@
 package currycoin;
 
+import currycoin.script.ByteArray;
+import currycoin.script.ExecutionLimits;
 import currycoin.script.Script;
 import currycoin.script.ScriptException;
 import currycoin.script.ScriptStack;
+import currycoin.script.SignatureVerifier;
+import currycoin.script.metrics.ScriptMetrics;
+import currycoin.script.template.ScriptTemplate;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
 
 public record TransactionInput(Hash prevTransaction, int index, Script lockingScript, Script unlockingScript) {
+	/**
+	 * The output this input spends.
+	 */
+	public OutPoint outPoint() {
+		return new OutPoint(prevTransaction, index);
+	}
+
+	public int byteSize() {
+		return OutPoint.BYTES + Integer.BYTES + lockingScript.byteSize() + Integer.BYTES + unlockingScript.byteSize();
+	}
+
+	public void apply(ByteBuffer buffer) {
+		outPoint().apply(buffer);
+		buffer.putInt(lockingScript.byteSize());
+		lockingScript.apply(buffer);
+		buffer.putInt(unlockingScript.byteSize());
+		unlockingScript.apply(buffer);
+	}
+
+	/**
+	 * @throws ScriptException.InvalidScriptException if either script is not valid, or its length
+	 * runs past the end of the buffer
+	 * @throws java.nio.BufferUnderflowException if the buffer ends before a script length
+	 */
+	public static TransactionInput parseFrom(ByteBuffer buffer) throws ScriptException.InvalidScriptException {
+		OutPoint outPoint = OutPoint.parseFrom(buffer);
+		Script lockingScript = parseScript(buffer);
+		Script unlockingScript = parseScript(buffer);
+		return new TransactionInput(outPoint.transaction(), outPoint.index(), lockingScript, unlockingScript);
+	}
+
+	private static Script parseScript(ByteBuffer buffer) throws ScriptException.InvalidScriptException {
+		int length = buffer.getInt();
+		if (length < 0 || length > buffer.remaining()) {
+			throw new ScriptException.InvalidScriptException("Script length " + length + " out of bounds, " + buffer.remaining() + " bytes remaining");
+		}
+		return Script.parseFrom(ByteArray.copyOf(buffer, length));
+	}
+
 	/**
 	 * Checks whether the provided unlocking script can unlock the provided locking script.
 	 * Does not check if the provided locking script is correct the output it is trying to unlock.
 	 */
 	public boolean unlocks(Hash dataToSign) {
-		ScriptStack stack = new ScriptStack(dataToSign);
+		return unlocks(dataToSign, SignatureVerifier.sequential());
+	}
+
+	/**
+	 * Same as {@link #unlocks(Hash)}, checking signatures with the provided verifier.
+	 */
+	public boolean unlocks(Hash dataToSign, SignatureVerifier signatureVerifier) {
+		return unlocks(dataToSign, signatureVerifier, ExecutionLimits.DEFAULT);
+	}
+
+	/**
+	 * Same as {@link #unlocks(Hash, SignatureVerifier)}, stopping both scripts together once they
+	 * exceed the given limits. Scripts of a standard shape are run by their {@link ScriptTemplate},
+	 * unless {@link ScriptMetrics} are collected: templates skip the opcodes they stand for, so
+	 * then every script goes through the interpreter to have its opcodes counted and timed.
+	 * <p>
+	 * If the verifier {@linkplain SignatureVerifier#defersChecks defers checks}, a pass only means
+	 * the scripts did not fail before their deferred checks, and it is left to whoever runs those
+	 * to record the outcome in the {@link ScriptMetrics}.
+	 */
+	public boolean unlocks(Hash dataToSign, SignatureVerifier signatureVerifier, ExecutionLimits limits) {
+		Optional<ScriptTemplate> template = ScriptMetrics.ENABLED
+				? Optional.empty()
+				: ScriptTemplate.recognize(lockingScript, unlockingScript);
+		boolean passed;
 		try {
-			lockingScript.execute(stack);
-			unlockingScript.execute(stack);
-			return true; // ran without failing
+			if (template.isPresent()) {
+				passed = template.get().run(dataToSign, signatureVerifier, limits);
+			} else {
+				ScriptStack stack = new ScriptStack(dataToSign, signatureVerifier, limits);
+				lockingScript.execute(stack);
+				unlockingScript.execute(stack);
+				passed = true; // ran without failing
+			}
 		} catch (ScriptException e) {
-			return false;
+			passed = false;
 		}
+
+		if (ScriptMetrics.ENABLED && !(passed && signatureVerifier.defersChecks())) ScriptMetrics.recordScript(passed);
+		return passed;
 	}
 }
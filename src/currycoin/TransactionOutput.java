@@ -1,6 +1,8 @@
 package currycoin;
 
+import currycoin.script.ByteArray;
 import currycoin.script.Script;
+import currycoin.script.ScriptException;
 
 import java.nio.ByteBuffer;
 
@@ -40,10 +42,10 @@ public record TransactionOutput(long value, OutputVerification verification) {
 			int length = buffer.getInt();
 			if (length == HASH_OPCODE) {
 				return new ScriptHash(Hash.parseFrom(buffer));
+			} else if (length < 0 || length > buffer.remaining()) {
+				throw new ScriptException.InvalidScriptException("Script length " + length + " out of bounds, " + buffer.remaining() + " bytes remaining");
 			} else {
-				ByteBuffer slice = buffer.slice().limit(length);
-				buffer.position(buffer.position() + length);
-				return new ScriptMatch(Script.parseFrom(slice));
+				return ScriptMatch.ofEncoded(ByteArray.copyOf(buffer, length));
 			}
 		}
 	}
@@ -66,21 +68,85 @@ public record TransactionOutput(long value, OutputVerification verification) {
 		}
 	}
 
-	public record ScriptMatch(Script lockingScript) implements OutputVerification {
+	/**
+	 * Requires the locking script to be exactly the given script.
+	 * <p>
+	 * Keeps the script in its encoded form and only parses it when it is inspected, since most
+	 * outputs are loaded without ever being spent.
+	 */
+	public static final class ScriptMatch implements OutputVerification {
+		private final ByteArray encoded;
+		private volatile Script lockingScript;
+
+		public ScriptMatch(Script lockingScript) {
+			this.encoded = lockingScript.encoded();
+			this.lockingScript = lockingScript;
+		}
+
+		private ScriptMatch(ByteArray encoded) {
+			this.encoded = encoded;
+		}
+
+		public static ScriptMatch ofEncoded(ByteArray encoded) {
+			return new ScriptMatch(encoded);
+		}
+
+		/**
+		 * Parses the locking script on first use.
+		 *
+		 * @throws ScriptException.InvalidScriptException if the stored encoding is not a valid script
+		 */
+		public Script lockingScript() throws ScriptException.InvalidScriptException {
+			Script result = lockingScript;
+			if (result == null) {
+				lockingScript = result = Script.parseFrom(encoded);
+			}
+			return result;
+		}
+
+		public ByteArray encoded() {
+			return encoded;
+		}
+
 		@Override
 		public boolean matches(Script script) {
-			return lockingScript.equals(script);
+			if (encoded.equals(script.encoded())) {
+				return true;
+			}
+
+			// a non-canonical encoding can still describe the same instructions
+			try {
+				Script parsed = lockingScript();
+				return !parsed.encoded().equals(encoded) && parsed.equals(script);
+			} catch (ScriptException.InvalidScriptException e) {
+				return false;
+			}
 		}
 
 		@Override
 		public int byteSize() {
-			return Integer.BYTES + lockingScript.byteSize();
+			return Integer.BYTES + encoded.length();
 		}
 
 		@Override
 		public void apply(ByteBuffer buffer) {
-			buffer.putInt(lockingScript().byteSize());
-			lockingScript.apply(buffer);
+			buffer.putInt(encoded.length());
+			encoded.apply(buffer);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o == this || o instanceof ScriptMatch match && encoded.equals(match.encoded);
+		}
+
+		@Override
+		public int hashCode() {
+			return encoded.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return "ScriptMatch[lockingScript=" + encoded + "]";
 		}
 	}
 }
@@ -0,0 +1,36 @@
+package currycoin.merkle;
+
+import currycoin.CryptoEngines;
+import currycoin.Hash;
+
+import java.security.MessageDigest;
+import java.util.List;
+
+/// Proof that a leaf is at a given index of a {@link MerkleTree}: the sibling of every node on
+/// the path from the leaf to the root, bottom first.
+public record MerkleProof(int index, List<Hash> siblings) {
+	public MerkleProof {
+		siblings = List.copyOf(siblings);
+	}
+
+	/**
+	 * Checks whether hashing the leaf up through the siblings produces the given root.
+	 */
+	public boolean verify(Hash leaf, Hash root) {
+		MessageDigest digest = CryptoEngines.sha256();
+		Hash current = leaf;
+		int position = index;
+		for (Hash sibling : siblings) {
+			if ((position & 1) == 0) {
+				current.addToDigest(digest);
+				sibling.addToDigest(digest);
+			} else {
+				sibling.addToDigest(digest);
+				current.addToDigest(digest);
+			}
+			current = new Hash(digest.digest());
+			position >>= 1;
+		}
+		return position == 0 && current.equals(root);
+	}
+}
@@ -0,0 +1,242 @@
+package currycoin.merkle;
+
+import currycoin.CryptoEngines;
+import currycoin.Hash;
+
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/// A Merkle tree over transaction hashes, whose root is a block's {@code transHash}.
+///
+/// Each parent is the SHA-256 of its two children concatenated; a level with an odd number of
+/// nodes pairs its last node with itself. The root of a single leaf is the leaf itself, and
+/// the root of an empty tree is {@link Hash#empty()}.
+///
+/// Pairing a node with itself means that repeating the last nodes of a level does not change
+/// the root: `[A, B, C]` and `[A, B, C, C]` share one (CVE-2012-2459). Any such repetition
+/// repeats leaves, and the hashes of the transactions of a block are distinct anyway, so the
+/// tree rejects duplicate leaves instead of changing the pairing, leaving every root to a
+/// single list of leaves and proofs as they are.
+///
+/// Every level is kept in one flat array of 32-byte nodes. Appending or replacing leaves only
+/// rehashes the nodes above them, so a block template can be edited without rebuilding the
+/// tree, and rehashing large ranges is split across the fork-join pool. Instances are not
+/// thread-safe.
+public final class MerkleTree {
+	private static final int NODE = 32;
+	/// Ranges with fewer parents than this are hashed on the calling thread.
+	private static final int PARALLEL_THRESHOLD = 2048;
+
+	private final List<byte[]> levels = new ArrayList<>();
+	private final List<Integer> sizes = new ArrayList<>();
+	private final Set<Hash> leaves = new HashSet<>();
+	private final ForkJoinPool pool;
+
+	public MerkleTree() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	public MerkleTree(ForkJoinPool pool) {
+		this.pool = pool;
+		levels.add(new byte[16 * NODE]);
+		sizes.add(0);
+	}
+
+	/**
+	 * Builds a tree over the given leaves, hashing the levels in parallel.
+	 */
+	public static MerkleTree of(List<Hash> leaves) {
+		MerkleTree tree = new MerkleTree();
+		tree.appendAll(leaves);
+		return tree;
+	}
+
+	public int size() {
+		return sizes.getFirst();
+	}
+
+	public Hash leaf(int index) {
+		return node(0, checkIndex(index));
+	}
+
+	public Hash root() {
+		if (size() == 0) {
+			return Hash.empty();
+		}
+		return node(levels.size() - 1, 0);
+	}
+
+	public void append(Hash leaf) {
+		appendAll(List.of(leaf));
+	}
+
+	/**
+	 * Appends the leaves, then rehashes only the nodes to the right of the previous last leaf.
+	 *
+	 * @throws IllegalArgumentException if a leaf is already in the tree or given twice, in which
+	 *                                  case none are appended
+	 */
+	public void appendAll(List<Hash> leaves) {
+		if (leaves.isEmpty()) {
+			return;
+		}
+
+		Set<Hash> added = new HashSet<>(leaves.size());
+		for (Hash leaf : leaves) {
+			if (this.leaves.contains(leaf) || !added.add(leaf)) {
+				throw new IllegalArgumentException("Duplicate leaf " + leaf);
+			}
+		}
+		this.leaves.addAll(added);
+
+		int first = size();
+		int size = first + leaves.size();
+		byte[] level = ensureCapacity(0, size);
+		ByteBuffer buffer = ByteBuffer.wrap(level, first * NODE, leaves.size() * NODE);
+		for (Hash leaf : leaves) {
+			leaf.apply(buffer);
+		}
+		sizes.set(0, size);
+
+		rehashFrom(first);
+	}
+
+	/**
+	 * Replaces a leaf, rehashing the path from it to the root.
+	 *
+	 * @throws IllegalArgumentException if the leaf is already in the tree at another index
+	 */
+	public void set(int index, Hash leaf) {
+		Hash old = leaf(index);
+		if (old.equals(leaf)) {
+			return;
+		}
+		if (!leaves.add(leaf)) {
+			throw new IllegalArgumentException("Duplicate leaf " + leaf);
+		}
+		leaves.remove(old);
+
+		leaf.apply(ByteBuffer.wrap(levels.getFirst(), index * NODE, NODE));
+		rehashPath(index);
+	}
+
+	/**
+	 * Produces the sibling hashes needed to prove that the leaf at the index is part of the tree.
+	 */
+	public MerkleProof proof(int index) {
+		checkIndex(index);
+		List<Hash> siblings = new ArrayList<>(levels.size() - 1);
+		int position = index;
+		for (int level = 0; level < levels.size() - 1; level++) {
+			int sibling = position ^ 1;
+			siblings.add(node(level, sibling < sizes.get(level) ? sibling : position));
+			position >>= 1;
+		}
+		return new MerkleProof(index, siblings);
+	}
+
+	/// Recomputes every parent whose children include a node at or after the given leaf index.
+	private void rehashFrom(int firstDirty) {
+		int level = 0;
+		int dirty = firstDirty;
+		while (sizes.get(level) > 1) {
+			int childCount = sizes.get(level);
+			int parentCount = (childCount + 1) / 2;
+			ensureCapacity(level + 1, parentCount);
+			sizes.set(level + 1, parentCount);
+
+			int from = dirty / 2;
+			if (parentCount - from >= PARALLEL_THRESHOLD) {
+				pool.invoke(new RehashTask(levels.get(level), childCount, levels.get(level + 1), from, parentCount));
+			} else {
+				rehash(levels.get(level), childCount, levels.get(level + 1), from, parentCount);
+			}
+
+			dirty = from;
+			level++;
+		}
+	}
+
+	private void rehashPath(int index) {
+		int position = index;
+		for (int level = 0; level < levels.size() - 1; level++) {
+			position >>= 1;
+			rehash(levels.get(level), sizes.get(level), levels.get(level + 1), position, position + 1);
+		}
+	}
+
+	private static void rehash(byte[] children, int childCount, byte[] parents, int from, int to) {
+		MessageDigest digest = CryptoEngines.sha256();
+		try {
+			for (int parent = from; parent < to; parent++) {
+				int left = 2 * parent;
+				int right = left + 1 < childCount ? left + 1 : left;
+				digest.update(children, left * NODE, NODE);
+				digest.update(children, right * NODE, NODE);
+				digest.digest(parents, parent * NODE, NODE);
+			}
+		} catch (DigestException e) {
+			throw new IllegalStateException("SHA-256 produced an unexpected digest length", e);
+		}
+	}
+
+	private static final class RehashTask extends RecursiveAction {
+		private final byte[] children;
+		private final int childCount;
+		private final byte[] parents;
+		private final int from;
+		private final int to;
+
+		RehashTask(byte[] children, int childCount, byte[] parents, int from, int to) {
+			this.children = children;
+			this.childCount = childCount;
+			this.parents = parents;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from < PARALLEL_THRESHOLD) {
+				rehash(children, childCount, parents, from, to);
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new RehashTask(children, childCount, parents, from, middle),
+						new RehashTask(children, childCount, parents, middle, to));
+			}
+		}
+	}
+
+	private byte[] ensureCapacity(int level, int nodes) {
+		if (level == levels.size()) {
+			levels.add(new byte[Math.max(nodes, 16) * NODE]);
+			sizes.add(0);
+		}
+
+		byte[] array = levels.get(level);
+		if (array.length < nodes * NODE) {
+			array = Arrays.copyOf(array, Math.max(nodes, array.length / NODE * 2) * NODE);
+			levels.set(level, array);
+		}
+		return array;
+	}
+
+	private Hash node(int level, int index) {
+		return Hash.parseFrom(ByteBuffer.wrap(levels.get(level), index * NODE, NODE));
+	}
+
+	private int checkIndex(int index) {
+		if (index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException("Leaf " + index + " out of bounds for size " + size());
+		}
+		return index;
+	}
+}
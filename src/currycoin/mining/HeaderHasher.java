@@ -0,0 +1,142 @@
+package currycoin.mining;
+
+import currycoin.BlockHeader;
+import currycoin.Hash;
+
+import java.nio.ByteBuffer;
+
+/// Computes {@link BlockHeader#hash()} for many nonces of the same header template.
+///
+/// A header hashes `prevHash || transHash || nonce` (68 bytes). The first 64 bytes fill exactly
+/// one SHA-256 block, so its compression is done once and the resulting midstate is reused:
+/// each nonce then costs a single compression of the final block, with no allocation.
+/// Instances are immutable and can be shared between threads; the scratch arrays passed to
+/// {@link #hash(int, int[], int[])} cannot.
+public final class HeaderHasher {
+	private static final int[] K = {
+			0x428a2f98, 0x71374491, 0xb5c0fbcf, 0xe9b5dba5, 0x3956c25b, 0x59f111f1, 0x923f82a4, 0xab1c5ed5,
+			0xd807aa98, 0x12835b01, 0x243185be, 0x550c7dc3, 0x72be5d74, 0x80deb1fe, 0x9bdc06a7, 0xc19bf174,
+			0xe49b69c1, 0xefbe4786, 0x0fc19dc6, 0x240ca1cc, 0x2de92c6f, 0x4a7484aa, 0x5cb0a9dc, 0x76f988da,
+			0x983e5152, 0xa831c66d, 0xb00327c8, 0xbf597fc7, 0xc6e00bf3, 0xd5a79147, 0x06ca6351, 0x14292967,
+			0x27b70a85, 0x2e1b2138, 0x4d2c6dfc, 0x53380d13, 0x650a7354, 0x766a0abb, 0x81c2c92e, 0x92722c85,
+			0xa2bfe8a1, 0xa81a664b, 0xc24b8b70, 0xc76c51a3, 0xd192e819, 0xd6990624, 0xf40e3585, 0x106aa070,
+			0x19a4c116, 0x1e376c08, 0x2748774c, 0x34b0bcb5, 0x391c0cb3, 0x4ed8aa4a, 0x5b9cca4f, 0x682e6ff3,
+			0x748f82ee, 0x78a5636f, 0x84c87814, 0x8cc70208, 0x90befffa, 0xa4506ceb, 0xbef9a3f7, 0xc67178f2
+	};
+
+	private static final int[] INITIAL_STATE = {
+			0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a, 0x510e527f, 0x9b05688c, 0x1f83d9ab, 0x5be0cd19
+	};
+
+	/// The length of a serialized header in bits, as stored in the padding of the final block.
+	private static final int MESSAGE_BITS = (32 + 32 + 4) * 8;
+
+	private final Hash prevHash;
+	private final Hash transHash;
+	private final int[] midstate = new int[8];
+
+	public HeaderHasher(Hash prevHash, Hash transHash) {
+		this.prevHash = prevHash;
+		this.transHash = transHash;
+
+		ByteBuffer firstBlock = ByteBuffer.allocate(64);
+		prevHash.apply(firstBlock);
+		transHash.apply(firstBlock);
+		firstBlock.flip();
+
+		int[] schedule = new int[64];
+		for (int i = 0; i < 16; i++) {
+			schedule[i] = firstBlock.getInt();
+		}
+		System.arraycopy(INITIAL_STATE, 0, midstate, 0, 8);
+		compress(midstate, schedule);
+	}
+
+	/**
+	 * Hashes the header with the given nonce into {@code out} as eight big-endian words.
+	 *
+	 * @param schedule scratch space of at least 64 ints
+	 * @param out      receives the hash, at least 8 ints
+	 */
+	public void hash(int nonce, int[] schedule, int[] out) {
+		// the nonce is serialized little endian, but SHA-256 reads words big endian
+		schedule[0] = Integer.reverseBytes(nonce);
+		schedule[1] = 0x8000_0000;
+		for (int i = 2; i < 15; i++) {
+			schedule[i] = 0;
+		}
+		schedule[15] = MESSAGE_BITS;
+
+		System.arraycopy(midstate, 0, out, 0, 8);
+		compress(out, schedule);
+	}
+
+	public BlockHeader header(int nonce) {
+		return new BlockHeader(prevHash, transHash, nonce);
+	}
+
+	/**
+	 * Checks whether a hash produced by {@link #hash(int, int[], int[])} is at most the target,
+	 * comparing both as unsigned big-endian numbers.
+	 */
+	public static boolean meetsTarget(int[] hash, int[] target) {
+		for (int i = 0; i < 8; i++) {
+			int comparison = Integer.compareUnsigned(hash[i], target[i]);
+			if (comparison != 0) {
+				return comparison < 0;
+			}
+		}
+		return true;
+	}
+
+	/// Splits a hash into eight big-endian words, the form used by {@link #meetsTarget}.
+	public static int[] words(Hash hash) {
+		int[] words = new int[8];
+		for (int i = 0; i < 4; i++) {
+			long word = hash.word(i);
+			words[2 * i] = (int) (word >>> 32);
+			words[2 * i + 1] = (int) word;
+		}
+		return words;
+	}
+
+	/// Runs the SHA-256 compression function over one block, whose 16 words are at the start
+	/// of the schedule, updating the state in place.
+	private static void compress(int[] state, int[] w) {
+		for (int i = 16; i < 64; i++) {
+			int s0 = Integer.rotateRight(w[i - 15], 7) ^ Integer.rotateRight(w[i - 15], 18) ^ (w[i - 15] >>> 3);
+			int s1 = Integer.rotateRight(w[i - 2], 17) ^ Integer.rotateRight(w[i - 2], 19) ^ (w[i - 2] >>> 10);
+			w[i] = w[i - 16] + s0 + w[i - 7] + s1;
+		}
+
+		int a = state[0], b = state[1], c = state[2], d = state[3];
+		int e = state[4], f = state[5], g = state[6], h = state[7];
+
+		for (int i = 0; i < 64; i++) {
+			int s1 = Integer.rotateRight(e, 6) ^ Integer.rotateRight(e, 11) ^ Integer.rotateRight(e, 25);
+			int ch = (e & f) ^ (~e & g);
+			int t1 = h + s1 + ch + K[i] + w[i];
+			int s0 = Integer.rotateRight(a, 2) ^ Integer.rotateRight(a, 13) ^ Integer.rotateRight(a, 22);
+			int maj = (a & b) ^ (a & c) ^ (b & c);
+			int t2 = s0 + maj;
+
+			h = g;
+			g = f;
+			f = e;
+			e = d + t1;
+			d = c;
+			c = b;
+			b = a;
+			a = t1 + t2;
+		}
+
+		state[0] += a;
+		state[1] += b;
+		state[2] += c;
+		state[3] += d;
+		state[4] += e;
+		state[5] += f;
+		state[6] += g;
+		state[7] += h;
+	}
+}
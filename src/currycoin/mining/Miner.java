@@ -0,0 +1,34 @@
+package currycoin.mining;
+
+import currycoin.Hash;
+
+/// Searches the nonce space of a header template for a header whose hash meets a target.
+///
+/// The 2^32 nonces are split into contiguous ranges, one per worker thread, and every worker
+/// hashes through a shared {@link HeaderHasher} so the constant first block is only compressed
+/// once per template.
+public final class Miner {
+	private final int threads;
+
+	public Miner() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public Miner(int threads) {
+		if (threads <= 0) {
+			throw new IllegalArgumentException("Must use at least one thread");
+		}
+		this.threads = threads;
+	}
+
+	/**
+	 * Starts searching for a nonce such that the header hash, read as an unsigned big-endian
+	 * number, is at most the target. The search runs in the background until a header is found,
+	 * the nonce space is exhausted, or the job is cancelled.
+	 */
+	public MiningJob mine(Hash prevHash, Hash transHash, Hash target) {
+		MiningJob job = new MiningJob(new HeaderHasher(prevHash, transHash), HeaderHasher.words(target), threads);
+		job.start();
+		return job;
+	}
+}
@@ -0,0 +1,111 @@
+package currycoin.mining;
+
+import currycoin.BlockHeader;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/// A running nonce search started by {@link Miner#mine}.
+public final class MiningJob {
+	private static final long NONCE_SPACE = 1L << 32;
+	/// How many hashes a worker does between checking for cancellation and reporting progress.
+	private static final int BATCH = 4096;
+
+	private final HeaderHasher hasher;
+	private final int[] target;
+	private final int threads;
+
+	private final CompletableFuture<Optional<BlockHeader>> result = new CompletableFuture<>();
+	private final AtomicInteger running;
+	private final LongAdder hashes = new LongAdder();
+	private volatile boolean stopped;
+	private long startNanos;
+	private volatile long endNanos;
+
+	MiningJob(HeaderHasher hasher, int[] target, int threads) {
+		this.hasher = hasher;
+		this.target = target;
+		this.threads = threads;
+		this.running = new AtomicInteger(threads);
+	}
+
+	void start() {
+		startNanos = System.nanoTime();
+		for (int i = 0; i < threads; i++) {
+			long from = NONCE_SPACE * i / threads;
+			long to = NONCE_SPACE * (i + 1) / threads;
+			Thread.ofPlatform()
+					.daemon()
+					.name("miner-" + i)
+					.start(() -> search(from, to));
+		}
+	}
+
+	private void search(long from, long to) {
+		int[] schedule = new int[64];
+		int[] hash = new int[8];
+
+		try {
+			for (long batchStart = from; batchStart < to && !stopped; batchStart += BATCH) {
+				long batchEnd = Math.min(batchStart + BATCH, to);
+				for (long nonce = batchStart; nonce < batchEnd; nonce++) {
+					hasher.hash((int) nonce, schedule, hash);
+					if (HeaderHasher.meetsTarget(hash, target)) {
+						hashes.add(nonce - batchStart + 1);
+						finish(Optional.of(hasher.header((int) nonce)));
+						return;
+					}
+				}
+				hashes.add(batchEnd - batchStart);
+			}
+		} finally {
+			if (running.decrementAndGet() == 0) {
+				finish(Optional.empty()); // no-op if a header was found or the job was cancelled
+			}
+		}
+	}
+
+	private void finish(Optional<BlockHeader> header) {
+		if (result.complete(header)) {
+			stopped = true;
+			endNanos = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Completes with the first header found that meets the target, or with an empty optional if
+	 * the whole nonce space was searched without success or the job was cancelled.
+	 */
+	public CompletableFuture<Optional<BlockHeader>> result() {
+		return result;
+	}
+
+	/**
+	 * Stops all workers at their next batch boundary.
+	 */
+	public void cancel() {
+		finish(Optional.empty());
+	}
+
+	public boolean isDone() {
+		return result.isDone();
+	}
+
+	public long hashesTried() {
+		return hashes.sum();
+	}
+
+	/**
+	 * The average hash rate since the job started, up to when it finished.
+	 */
+	public double hashesPerSecond() {
+		long end = endNanos;
+		if (end == 0) {
+			end = System.nanoTime();
+		}
+		long elapsed = Math.max(1, end - startNanos);
+		return hashes.sum() * 1e9 / elapsed;
+	}
+}
@@ -1,26 +1,100 @@
 package currycoin.script;
 
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.security.MessageDigest;
+import java.security.Signature;
+import java.security.SignatureException;
 import java.util.Arrays;
+import java.util.Objects;
 
-public record ByteArray(byte[] data) {
-	public ByteArray {
-		data = data.clone();
+/// An immutable sequence of bytes.
+///
+/// The contents never leave or enter through a shared array: the public constructor and
+/// {@link #data()} copy. Internally, a ByteArray may be a view over a range of a larger
+/// array that no one else can modify, which lets {@link #slice} and the script parser hand out
+/// pushed data without copying it. All accessors below read the range in place.
+public final class ByteArray {
+	private final byte[] bytes;
+	private final int offset;
+	private final int length;
+
+	public ByteArray(byte[] data) {
+		this(data.clone(), 0, data.length);
+	}
+
+	/// Wraps the range without copying; the array must never be modified afterwards.
+	private ByteArray(byte[] bytes, int offset, int length) {
+		this.bytes = bytes;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	/// Takes ownership of a freshly filled array without copying it.
+	static ByteArray adopt(byte[] data) {
+		return new ByteArray(data, 0, data.length);
+	}
+
+	/**
+	 * Reads the given number of bytes from the buffer into a new ByteArray, copying them once.
+	 * The length is checked against the remaining bytes before anything is allocated.
+	 *
+	 * @throws BufferUnderflowException if fewer bytes remain
+	 */
+	public static ByteArray copyOf(ByteBuffer buffer, int length) {
+		if (length < 0) {
+			throw new IllegalArgumentException("Negative length: " + length);
+		}
+		if (length > buffer.remaining()) {
+			throw new BufferUnderflowException();
+		}
+
+		byte[] data = new byte[length];
+		buffer.get(data);
+		return new ByteArray(data, 0, length);
+	}
+
+	/**
+	 * Returns a ByteArray holding just these bytes, copying them if this is a view into a larger
+	 * array, so that keeping it around does not keep the rest of that array alive.
+	 */
+	ByteArray compact() {
+		return offset == 0 && length == bytes.length ? this : adopt(data());
 	}
 
-	@Override
 	public byte[] data() {
-		return data.clone();
+		return Arrays.copyOfRange(bytes, offset, offset + length);
+	}
+
+	/**
+	 * Returns a view over part of this array, sharing its contents.
+	 */
+	public ByteArray slice(int from, int length) {
+		if (from < 0 || length < 0 || from + length > this.length) {
+			throw new IndexOutOfBoundsException("Slice [" + from + ", " + (from + length) + ") out of bounds for length " + this.length);
+		}
+		return new ByteArray(bytes, offset + from, length);
+	}
+
+	/**
+	 * Returns a read-only buffer over the contents, positioned at the first byte.
+	 */
+	public ByteBuffer asReadOnlyBuffer() {
+		return ByteBuffer.wrap(bytes, offset, length).slice().asReadOnlyBuffer();
 	}
 
 	public int length() {
-		return data.length;
+		return length;
+	}
+
+	public byte byteAt(int index) {
+		return bytes[offset + Objects.checkIndex(index, length)];
 	}
 
 	public boolean asBoolean() {
-		for (byte item : data) {
-			if (item != 0)
+		for (int i = offset; i < offset + length; i++) {
+			if (bytes[i] != 0)
 				return true;
 		}
 
@@ -28,44 +102,44 @@ public record ByteArray(byte[] data) {
 	}
 
 	public boolean isInt() {
-		return data.length <= 4;
+		return length <= 4;
 	}
 
 	public int toInt() {
-		if (data.length > 4) {
+		if (length > 4) {
 			throw new ScriptException.VerificationException("Data is too long to be an integer");
 		}
 
-		if (data.length == 0) {
+		if (length == 0) {
 			return 0;
 		}
 
 		// little endian
 		int value = 0;
-		for (int i = 0; i < data.length; i++) {
-			value |= (data[i] & 0xFF) << (i * 8);
+		for (int i = 0; i < length; i++) {
+			value |= (bytes[offset + i] & 0xFF) << (i * 8);
 		}
 
 		return value;
 	}
 
 	public boolean isLong() {
-		return data.length <= 8;
+		return length <= 8;
 	}
 
 	public long toLong() {
-		if (data.length > 8) {
+		if (length > 8) {
 			throw new ScriptException.VerificationException("Data is too long to be a long");
 		}
 
-		if (data.length == 0) {
+		if (length == 0) {
 			return 0;
 		}
 
 		// little endian
 		long value = 0;
-		for (int i = 0; i < data.length; i++) {
-			value |= ((long) (data[i] & 0xFF)) << (i * 8);
+		for (int i = 0; i < length; i++) {
+			value |= ((long) (bytes[offset + i] & 0xFF)) << (i * 8);
 		}
 
 		return value;
@@ -73,16 +147,37 @@ public record ByteArray(byte[] data) {
 
 	private static final ByteArray ZERO = new ByteArray(new byte[0]);
 
+	// canonical encodings of the values arithmetic and boolean opcodes produce most often
+	private static final int MIN_CACHED = -1;
+	private static final int MAX_CACHED = 16;
+	private static final ByteArray[] SMALL_VALUES = new ByteArray[MAX_CACHED - MIN_CACHED + 1];
+
+	static {
+		for (int value = MIN_CACHED; value <= MAX_CACHED; value++) {
+			SMALL_VALUES[value - MIN_CACHED] = value == 0 ? ZERO : encodeInt(value);
+		}
+	}
+
 	public static ByteArray fromInt(int value) {
-		if (value == 0) return ZERO;
+		if (value >= MIN_CACHED && value <= MAX_CACHED) return SMALL_VALUES[value - MIN_CACHED];
+		return encodeInt(value);
+	}
 
-		int size = 4 - Integer.numberOfLeadingZeros(value) / 8;
+	private static ByteArray encodeInt(int value) {
+		int size = intLength(value);
 		byte[] data = new byte[size];
 		for (int i = 0; i < size; i++) {
 			data[i] = (byte) (value >> (i * 8));
 		}
 
-		return new ByteArray(data);
+		return new ByteArray(data, 0, size);
+	}
+
+	/**
+	 * The length of {@code fromInt(value)}, without encoding it.
+	 */
+	public static int intLength(int value) {
+		return 4 - Integer.numberOfLeadingZeros(value) / 8;
 	}
 
 	public static ByteArray fromLong(long value) {
@@ -94,7 +189,7 @@ public record ByteArray(byte[] data) {
 			data[i] = (byte) (value >> (i * 8));
 		}
 
-		return new ByteArray(data);
+		return new ByteArray(data, 0, size);
 	}
 
 	public static ByteArray empty() {
@@ -102,41 +197,110 @@ public record ByteArray(byte[] data) {
 	}
 
 	public void apply(ByteBuffer buffer) {
-		buffer.put(data);
+		buffer.put(bytes, offset, length);
 	}
 
 	public void addToDigest(MessageDigest digest) {
-		digest.update(data);
+		digest.update(bytes, offset, length);
+	}
+
+	public void addToSignature(Signature signature) throws SignatureException {
+		signature.update(bytes, offset, length);
+	}
+
+	/**
+	 * Verifies these bytes as the signature over the data passed to the initialized engine.
+	 */
+	public boolean verifies(Signature signature) throws SignatureException {
+		return signature.verify(bytes, offset, length);
 	}
 
 	@Override
 	public int hashCode() {
-		return Arrays.hashCode(data);
+		// same value as Arrays.hashCode over the contents
+		int result = 1;
+		for (int i = offset; i < offset + length; i++) {
+			result = 31 * result + bytes[i];
+		}
+		return result;
 	}
 
 	@Override
 	public boolean equals(Object o) {
-		return o instanceof ByteArray h && Arrays.equals(h.data, data);
+		return o instanceof ByteArray h
+				&& Arrays.equals(h.bytes, h.offset, h.offset + h.length, bytes, offset, offset + length);
 	}
 
 	@Override
 	public String toString() {
-		return "0x" + bytesToHex(data);
+		return "0x" + bytesToHex();
 	}
 
 	public String toPrettyString() {
-		String string = bytesToHex(data);
-		if (isInt())
-			return String.format("0x%-8s (%d)", string, toInt());
-		else
-			return "0x" + string;
+		String hex = bytesToHex();
+		if (!isInt()) {
+			return "0x" + hex;
+		}
+
+		// "0x" + hex padded to 8 characters + " (value)"
+		StringBuilder builder = new StringBuilder(24).append("0x").append(hex);
+		for (int i = hex.length(); i < 8; i++) {
+			builder.append(' ');
+		}
+		return builder.append(" (").append(toInt()).append(')').toString();
 	}
 
-	private static String bytesToHex(byte[] arr) {
-		StringBuilder hex = new StringBuilder();
-		for (byte i : arr) {
-			hex.append(String.format("%02x", i));
+	/**
+	 * Writes the contents as lowercase hex digits, without a prefix.
+	 */
+	public void appendHex(Appendable out) throws IOException {
+		for (int i = offset; i < offset + length; i++) {
+			out.append(HEX_DIGITS[(bytes[i] >> 4) & 0xf]).append(HEX_DIGITS[bytes[i] & 0xf]);
+		}
+	}
+
+	private String bytesToHex() {
+		char[] hex = new char[length * 2];
+		for (int i = 0; i < length; i++) {
+			hex[2 * i] = HEX_DIGITS[(bytes[offset + i] >> 4) & 0xf];
+			hex[2 * i + 1] = HEX_DIGITS[bytes[offset + i] & 0xf];
+		}
+		return new String(hex);
+	}
+
+	/**
+	 * Decodes the hex digits between {@code start} and {@code end}, in either case.
+	 *
+	 * @throws IllegalArgumentException if there is an odd number of digits or a character is not one
+	 */
+	public static ByteArray fromHex(CharSequence hex, int start, int end) {
+		if ((end - start) % 2 != 0) {
+			throw new IllegalArgumentException("Odd number of hex digits");
+		}
+
+		byte[] data = new byte[(end - start) / 2];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (hexValue(hex.charAt(start + 2 * i)) << 4 | hexValue(hex.charAt(start + 2 * i + 1)));
+		}
+		return adopt(data);
+	}
+
+	private static int hexValue(char digit) {
+		int value = digit < HEX_VALUES.length ? HEX_VALUES[digit] : -1;
+		if (value < 0) {
+			throw new IllegalArgumentException("Invalid hex digit: " + digit);
+		}
+		return value;
+	}
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+	private static final byte[] HEX_VALUES = new byte['f' + 1];
+
+	static {
+		Arrays.fill(HEX_VALUES, (byte) -1);
+		for (int i = 0; i < 16; i++) {
+			HEX_VALUES[HEX_DIGITS[i]] = (byte) i;
+			HEX_VALUES[Character.toUpperCase(HEX_DIGITS[i])] = (byte) i;
 		}
-		return hex.toString();
 	}
 }
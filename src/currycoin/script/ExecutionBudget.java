@@ -0,0 +1,56 @@
+package currycoin.script;
+
+/// What a script execution has used of its {@link ExecutionLimits}.
+///
+/// Every {@link ScriptStack} carries one. Interpreters charge instructions, signature opcodes
+/// charge their verifications, and the stack itself checks its depth and size on every push.
+public final class ExecutionBudget {
+	private final ExecutionLimits limits;
+	private int instructions;
+	private int signatureOperations;
+
+	public ExecutionBudget(ExecutionLimits limits) {
+		this.limits = limits;
+	}
+
+	public ExecutionLimits limits() {
+		return limits;
+	}
+
+	public int instructions() {
+		return instructions;
+	}
+
+	public int signatureOperations() {
+		return signatureOperations;
+	}
+
+	/**
+	 * Accounts for one more executed instruction.
+	 */
+	public void chargeInstruction() throws ScriptException.BudgetExceededException {
+		if (instructions == limits.maxInstructions()) {
+			throw new ScriptException.BudgetExceededException("Instruction limit of " + limits.maxInstructions() + " exceeded");
+		}
+		instructions++;
+	}
+
+	/**
+	 * Accounts for the given number of signature verifications, before they are attempted.
+	 */
+	public void chargeSignatureOperations(int count) throws ScriptException.BudgetExceededException {
+		if (count > limits.maxSignatureOperations() - signatureOperations) {
+			throw new ScriptException.BudgetExceededException("Signature operation limit of " + limits.maxSignatureOperations() + " exceeded");
+		}
+		signatureOperations += count;
+	}
+
+	void checkStack(int depth, long bytes) throws ScriptException.BudgetExceededException {
+		if (depth > limits.maxStackDepth()) {
+			throw new ScriptException.BudgetExceededException("Stack depth limit of " + limits.maxStackDepth() + " exceeded");
+		}
+		if (bytes > limits.maxStackBytes()) {
+			throw new ScriptException.BudgetExceededException("Stack size limit of " + limits.maxStackBytes() + " bytes exceeded");
+		}
+	}
+}
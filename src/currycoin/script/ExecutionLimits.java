@@ -0,0 +1,19 @@
+package currycoin.script;
+
+/// How much work a single script execution may do before it is stopped with a
+/// {@link ScriptException.BudgetExceededException}.
+///
+/// @param maxInstructions executed instructions, a conditional block counting as one besides its contents
+/// @param maxSignatureOperations signature verifications, a multi-signature check counting one per key
+/// @param maxStackDepth items on the stack at once
+/// @param maxStackBytes bytes on the stack at once
+public record ExecutionLimits(int maxInstructions, int maxSignatureOperations, int maxStackDepth, long maxStackBytes) {
+	public static final ExecutionLimits DEFAULT = new ExecutionLimits(10_000, 200, 1_000, 64 * 1024);
+	public static final ExecutionLimits UNLIMITED = new ExecutionLimits(Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE);
+
+	public ExecutionLimits {
+		if (maxInstructions < 0 || maxSignatureOperations < 0 || maxStackDepth < 0 || maxStackBytes < 0) {
+			throw new IllegalArgumentException("Limits must not be negative");
+		}
+	}
+}
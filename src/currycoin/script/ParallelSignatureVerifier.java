@@ -0,0 +1,145 @@
+package currycoin.script;
+
+import currycoin.Hash;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/// Speculatively verifies the next candidate keys of a multi-signature check concurrently.
+///
+/// The matcher walks the keys in the same order as the sequential one, so the outcome and the
+/// number of matched signatures are identical. While signature i waits on key k, keys k + 1 up
+/// to k + width - 1 are already being verified against it on the executor, never going past the
+/// last key signature i can match on a fully matching path (key i + n - m, with m signatures and
+/// n keys). Once a key matches, the speculation moves on to the next signature from there.
+///
+/// With a width of at most n / m, the speculative pairs wasted on keys after each match add up
+/// to fewer than n, so a check never verifies more than twice as many pairs as there are keys.
+///
+/// The calling thread verifies any pair it needs that has not started yet itself, and only waits
+/// for pairs already running, so it cannot wait on work that is still queued. The executor must
+/// still not be the pool the scripts themselves run on, such as the one of an
+/// {@link currycoin.validation.InputValidator}: speculation queued behind other scripts would
+/// only be verified by the callers, adding nothing but overhead.
+final class ParallelSignatureVerifier implements SignatureVerifier {
+	private final Executor executor;
+	private final SignatureVerifier verifier;
+
+	ParallelSignatureVerifier(Executor executor, SignatureVerifier verifier) {
+		this.executor = executor;
+		this.verifier = verifier;
+	}
+
+	@Override
+	public boolean check(ByteArray signature, ByteArray publicKey, Hash hash) throws ScriptException {
+		return verifier.check(signature, publicKey, hash);
+	}
+
+	@Override
+	public int checkMulti(List<ByteArray> signatures, List<ByteArray> publicKeys, Hash hash) throws ScriptException {
+		int m = signatures.size();
+		int n = publicKeys.size();
+		int window = n - m + 1;
+		int width = m == 0 ? 0 : Math.min(window, n / m);
+		if (width <= 1) {
+			return SignatureVerifier.super.checkMulti(signatures, publicKeys, hash);
+		}
+
+		Deque<Candidate> pending = new ArrayDeque<>(width);
+		try {
+			int key = 0;
+			for (int i = 0; i < m; i++) {
+				ByteArray signature = signatures.get(i);
+				int next = key; // the first key not yet handed out for this signature
+				boolean matched = false;
+				while (!matched && key < n) {
+					// keys past the window are only reached once the check has failed
+					for (int end = Math.min(key + width, i + window); next < end; next++) {
+						pending.add(submit(signature, publicKeys.get(next), hash));
+					}
+
+					Candidate candidate = pending.poll();
+					matched = candidate != null
+							? candidate.join()
+							: check(signature, publicKeys.get(key), hash);
+					key++;
+				}
+				cancel(pending);
+
+				if (!matched) {
+					return i;
+				}
+			}
+			return m;
+		} finally {
+			cancel(pending);
+		}
+	}
+
+	private Candidate submit(ByteArray signature, ByteArray publicKey, Hash hash) {
+		Candidate candidate = new Candidate(signature, publicKey, hash);
+		try {
+			executor.execute(candidate);
+		} catch (RejectedExecutionException e) {
+			// left for the calling thread to verify when it gets there
+		}
+		return candidate;
+	}
+
+	private static void cancel(Deque<Candidate> pending) {
+		for (Candidate candidate; (candidate = pending.poll()) != null; ) {
+			candidate.claimed.set(true);
+		}
+	}
+
+	/// A pair verified by whichever of the executor and the calling thread claims it first.
+	private final class Candidate implements Runnable {
+		private final ByteArray signature;
+		private final ByteArray publicKey;
+		private final Hash hash;
+		private final AtomicBoolean claimed = new AtomicBoolean();
+		private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+		Candidate(ByteArray signature, ByteArray publicKey, Hash hash) {
+			this.signature = signature;
+			this.publicKey = publicKey;
+			this.hash = hash;
+		}
+
+		@Override
+		public void run() {
+			if (claimed.compareAndSet(false, true)) {
+				verify();
+			}
+		}
+
+		boolean join() throws ScriptException {
+			if (claimed.compareAndSet(false, true)) {
+				verify();
+			}
+
+			try {
+				return result.join();
+			} catch (CompletionException e) {
+				if (e.getCause() instanceof RuntimeException cause) {
+					throw cause;
+				}
+				throw e;
+			}
+		}
+
+		private void verify() {
+			try {
+				result.complete(check(signature, publicKey, hash));
+			} catch (RuntimeException e) {
+				result.completeExceptionally(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package currycoin.script;
+
+import java.security.KeyFactory;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/// A thread-safe LRU cache from X.509 encoded public keys to their decoded form.
+///
+/// Keys that fail to decode are cached as well, so repeatedly presenting the same malformed key
+/// only costs a lookup. The cache is split into independently locked stripes, each holding an
+/// equal share of the capacity. Keys are stored compacted, so they never hold on to the script
+/// they were sliced from.
+public final class PublicKeyCache {
+	public static final int DEFAULT_CAPACITY = 4_096;
+	private static final int STRIPES = 16;
+
+	private final Stripe[] stripes = new Stripe[STRIPES];
+
+	public PublicKeyCache(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive");
+		}
+
+		int perStripe = Math.max(1, capacity / STRIPES);
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new Stripe(perStripe);
+		}
+	}
+
+	/**
+	 * Decodes an X.509 encoded EC public key, returning an empty optional if it is malformed.
+	 */
+	public Optional<ECPublicKey> decode(ByteArray encoded) throws NoSuchAlgorithmException {
+		Stripe stripe = stripes[(encoded.hashCode() & 0x7fff_ffff) % STRIPES];
+
+		Optional<ECPublicKey> cached;
+		synchronized (stripe) {
+			cached = stripe.get(encoded);
+		}
+		if (cached != null) {
+			return cached;
+		}
+
+		Optional<ECPublicKey> decoded = decode0(encoded);
+		synchronized (stripe) {
+			stripe.put(encoded.compact(), decoded);
+		}
+		return decoded;
+	}
+
+	private static Optional<ECPublicKey> decode0(ByteArray encoded) throws NoSuchAlgorithmException {
+		KeyFactory keyFactoryEC = KeyFactory.getInstance("EC");
+		try {
+			return Optional.of((ECPublicKey) keyFactoryEC.generatePublic(new X509EncodedKeySpec(encoded.data())));
+		} catch (InvalidKeySpecException e) {
+			return Optional.empty(); // mal-formatted key, remember it so we don't parse it again
+		}
+	}
+
+	public void clear() {
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				stripe.clear();
+			}
+		}
+	}
+
+	public int size() {
+		int size = 0;
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				size += stripe.size();
+			}
+		}
+		return size;
+	}
+
+	private static final class Stripe extends LinkedHashMap<ByteArray, Optional<ECPublicKey>> {
+		private final int capacity;
+
+		Stripe(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<ByteArray, Optional<ECPublicKey>> eldest) {
+			return size() > capacity;
+		}
+	}
+
+	private static final PublicKeyCache SHARED = new PublicKeyCache(DEFAULT_CAPACITY);
+
+	/// The cache consulted by the signature opcodes.
+	public static PublicKeyCache shared() {
+		return SHARED;
+	}
+}
@@ -1,31 +1,55 @@
 package currycoin.script;
 
+import currycoin.CryptoEngines;
 import currycoin.Hash;
+import currycoin.script.assembly.Disassembler;
 import currycoin.script.instructions.Instruction;
+import currycoin.script.instructions.ScriptParser;
+import currycoin.script.metrics.ScriptMetrics;
 
 import java.nio.ByteBuffer;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.ArrayList;
 import java.util.List;
 
-public record Script(List<Instruction> instructions) {
-	public Script {
-		instructions = List.copyOf(instructions);
+/// An immutable list of instructions.
+///
+/// The encoded form, its size and its hash are computed the first time they are needed and
+/// kept, so matching and re-serializing the same script again is constant time.
+public final class Script {
+	private final List<Instruction> instructions;
+
+	private int byteSize = -1;
+	private int hashCode;
+	private volatile ByteArray encoded;
+	private volatile Hash hash;
+
+	public Script(List<Instruction> instructions) {
+		this.instructions = List.copyOf(instructions);
+	}
+
+	public List<Instruction> instructions() {
+		return instructions;
 	}
 
 	public void execute(ScriptStack stack) throws ScriptException {
+		ExecutionBudget budget = stack.budget();
 		for (Instruction instruction : instructions) {
-			instruction.execute(stack);
+			budget.chargeInstruction();
+			if (ScriptMetrics.ENABLED) ScriptMetrics.execute(instruction, stack);
+			else instruction.execute(stack);
 		}
 	}
 
+	/**
+	 * Parses the remaining contents of the buffer. They are copied once, and pushed data refers
+	 * into that copy.
+	 */
 	public static Script parseFrom(ByteBuffer data) {
-		List<Instruction> instructions = new ArrayList<>();
-		while (data.hasRemaining()) {
-			instructions.add(Instruction.parseFrom(data));
-		}
-		return new Script(instructions);
+		return parseFrom(ByteArray.copyOf(data, data.remaining()));
+	}
+
+	public static Script parseFrom(ByteArray encoded) {
+		return ScriptParser.parse(encoded);
 	}
 
 	public static Script of(Instruction... instructions) {
@@ -33,26 +57,66 @@ public record Script(List<Instruction> instructions) {
 	}
 
 	public int byteSize() {
-		return instructions.stream().mapToInt(Instruction::byteSize).sum();
+		int size = byteSize;
+		if (size < 0) {
+			size = 0;
+			for (Instruction instruction : instructions) {
+				size += instruction.byteSize();
+			}
+			byteSize = size; // racy but idempotent
+		}
+		return size;
 	}
 
 	public void apply(ByteBuffer buffer) {
-		for (Instruction instruction : instructions) {
-			instruction.apply(buffer);
+		encoded().apply(buffer);
+	}
+
+	/**
+	 * The canonical encoding of this script, as written by {@link #apply}.
+	 */
+	public ByteArray encoded() {
+		ByteArray result = encoded;
+		if (result == null) {
+			byte[] data = new byte[byteSize()];
+			ByteBuffer buffer = ByteBuffer.wrap(data);
+			for (Instruction instruction : instructions) {
+				instruction.apply(buffer);
+			}
+			encoded = result = ByteArray.adopt(data);
 		}
+		return result;
 	}
 
 	public Hash hash() {
-		try {
-			byte[] data = new byte[byteSize()];
-			apply(ByteBuffer.wrap(data));
+		Hash result = hash;
+		if (result == null) {
+			MessageDigest digest = CryptoEngines.sha256();
+			encoded().addToDigest(digest);
+			hash = result = new Hash(digest.digest());
+		}
+		return result;
+	}
 
-			MessageDigest digest = MessageDigest.getInstance("SHA-256");
-			digest.update(data);
+	@Override
+	public boolean equals(Object o) {
+		return o == this || o instanceof Script s && instructions.equals(s.instructions);
+	}
 
-			return new Hash(digest.digest());
-		} catch (NoSuchAlgorithmException e) {
-			throw new RuntimeException("SHA-256 not supported", e);
+	@Override
+	public int hashCode() {
+		int result = hashCode;
+		if (result == 0) {
+			hashCode = result = instructions.hashCode();
 		}
+		return result;
+	}
+
+	/**
+	 * The script in the assembly text format of {@link Disassembler}.
+	 */
+	@Override
+	public String toString() {
+		return Disassembler.disassemble(this);
 	}
 }
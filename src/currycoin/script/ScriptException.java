@@ -46,4 +46,11 @@ public abstract sealed class ScriptException extends RuntimeException {
 			super(message);
 		}
 	}
+
+	/// Thrown when an execution exceeds its {@link ExecutionLimits}.
+	public static final class BudgetExceededException extends ScriptException {
+		public BudgetExceededException(String message) {
+			super(message);
+		}
+	}
 }
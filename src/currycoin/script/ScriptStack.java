@@ -2,47 +2,179 @@ package currycoin.script;
 
 import currycoin.Hash;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
-import java.util.NoSuchElementException;
+import java.util.Arrays;
 
+/// The stack a script runs on.
+///
+/// Items are kept in an array of slots. A slot either holds a {@link ByteArray}, or, for results
+/// of arithmetic and boolean opcodes, an unboxed int that is only encoded into bytes once an
+/// opcode asks for bytes. Both forms are indistinguishable to scripts: an int slot behaves
+/// exactly like {@code ByteArray.fromInt(value)}.
+///
+/// The stack enforces the depth and size limits of its {@link ExecutionBudget} on every push.
 public class ScriptStack {
-    private final Deque<ByteArray> stack = new ArrayDeque<>();
+    private static final int INITIAL_CAPACITY = 16;
+
+    private ByteArray[] items = new ByteArray[INITIAL_CAPACITY]; // null marks an int slot
+    private int[] ints = new int[INITIAL_CAPACITY];
+    private int size;
+    private long bytes;
+
     private final Hash dataToSign;
+    private final SignatureVerifier signatureVerifier;
+    private final ExecutionBudget budget;
 
     public ScriptStack(Hash dataToSign) {
+        this(dataToSign, SignatureVerifier.sequential());
+    }
+
+    public ScriptStack(Hash dataToSign, SignatureVerifier signatureVerifier) {
+        this(dataToSign, signatureVerifier, ExecutionLimits.DEFAULT);
+    }
+
+    public ScriptStack(Hash dataToSign, SignatureVerifier signatureVerifier, ExecutionLimits limits) {
         this.dataToSign = dataToSign;
+        this.signatureVerifier = signatureVerifier;
+        this.budget = new ExecutionBudget(limits);
     }
 
     public void push(ByteArray byteArray) throws ScriptException {
-        stack.push(byteArray);
+        grow(byteArray.length());
+        items[size++] = byteArray;
+    }
+
+    public void pushInt(int value) throws ScriptException {
+        grow(ByteArray.intLength(value));
+        items[size] = null;
+        ints[size++] = value;
+    }
+
+    public void pushBoolean(boolean value) throws ScriptException {
+        pushInt(value ? 1 : 0);
     }
 
     public ByteArray pop() throws ScriptException.StackUnderflowException {
-        try {
-            return stack.pop();
-        } catch (NoSuchElementException e) {
-            throw new ScriptException.StackUnderflowException("Nothing to pop", e);
-        }
+        if (size == 0)
+            throw new ScriptException.StackUnderflowException("Nothing to pop");
+        size--;
+        bytes -= length(size);
+        ByteArray item = items[size];
+        if (item == null)
+            return ByteArray.fromInt(ints[size]);
+        items[size] = null;
+        return item;
+    }
+
+    public int popInt() throws ScriptException {
+        if (size == 0)
+            throw new ScriptException.StackUnderflowException("Nothing to pop");
+        size--;
+        bytes -= length(size);
+        ByteArray item = items[size];
+        if (item == null)
+            return ints[size];
+        items[size] = null;
+        return item.toInt();
+    }
+
+    public boolean popBoolean() throws ScriptException.StackUnderflowException {
+        if (size == 0)
+            throw new ScriptException.StackUnderflowException("Nothing to pop");
+        size--;
+        bytes -= length(size);
+        ByteArray item = items[size];
+        if (item == null)
+            return ints[size] != 0;
+        items[size] = null;
+        return item.asBoolean();
+    }
+
+    /**
+     * Removes the top item without materializing it.
+     */
+    public void drop() throws ScriptException.StackUnderflowException {
+        if (size == 0)
+            throw new ScriptException.StackUnderflowException("Nothing to pop");
+        size--;
+        bytes -= length(size);
+        items[size] = null;
     }
 
     public ByteArray peek() throws ScriptException.StackUnderflowException {
-        ByteArray result = stack.peek();
-        if (result == null)
+        if (size == 0)
+            throw new ScriptException.StackUnderflowException("Nothing to peek");
+        return slot(size - 1);
+    }
+
+    /**
+     * Returns the item at the given depth without removing it, where 0 is the top of the stack.
+     */
+    public ByteArray peek(int depth) throws ScriptException.StackUnderflowException {
+        if (depth < 0 || depth >= size)
+            throw new ScriptException.StackUnderflowException("Nothing to peek at depth " + depth);
+        return slot(size - 1 - depth);
+    }
+
+    public boolean peekBoolean() throws ScriptException.StackUnderflowException {
+        if (size == 0)
+            throw new ScriptException.StackUnderflowException("Nothing to peek");
+        ByteArray item = items[size - 1];
+        return item == null ? ints[size - 1] != 0 : item.asBoolean();
+    }
+
+    /**
+     * Returns the length in bytes of the top item.
+     */
+    public int peekLength() throws ScriptException.StackUnderflowException {
+        if (size == 0)
             throw new ScriptException.StackUnderflowException("Nothing to peek");
-        return result;
+        return length(size - 1);
+    }
+
+    /**
+     * Pushes a copy of the item at the given depth, keeping int slots unboxed.
+     */
+    public void copyToTop(int depth) throws ScriptException {
+        if (depth < 0 || depth >= size)
+            throw new ScriptException.StackUnderflowException("Nothing to peek at depth " + depth);
+        int index = size - 1 - depth;
+        grow(length(index));
+        items[size] = items[index];
+        ints[size++] = ints[index];
     }
 
     public int depth() {
-        return stack.size();
+        return size;
+    }
+
+    private ByteArray slot(int index) {
+        ByteArray item = items[index];
+        return item == null ? ByteArray.fromInt(ints[index]) : item;
+    }
+
+    private int length(int index) {
+        ByteArray item = items[index];
+        return item == null ? ByteArray.intLength(ints[index]) : item.length();
+    }
+
+    /**
+     * Makes room for one more item of the given length, within the budget.
+     */
+    private void grow(int length) throws ScriptException.BudgetExceededException {
+        budget.checkStack(size + 1, bytes + length);
+        bytes += length;
+        if (size == items.length) {
+            items = Arrays.copyOf(items, size * 2);
+            ints = Arrays.copyOf(ints, size * 2);
+        }
     }
 
     public String toString() {
-        StringBuilder builder = new StringBuilder("Stack Size: " + stack.size());
+        StringBuilder builder = new StringBuilder("Stack Size: " + size);
 
-        for (ByteArray byteArray : stack.reversed()) {
+        for (int i = 0; i < size; i++) {
             builder.append("\n");
-            builder.append(byteArray.toPrettyString());
+            builder.append(slot(i).toPrettyString());
         }
         return builder.toString();
     }
@@ -50,4 +182,12 @@ public class ScriptStack {
     public Hash dataToSign() {
         return dataToSign;
     }
-}
\ No newline at end of file
+
+    public SignatureVerifier signatureVerifier() {
+        return signatureVerifier;
+    }
+
+    public ExecutionBudget budget() {
+        return budget;
+    }
+}
@@ -0,0 +1,165 @@
+package currycoin.script;
+
+import currycoin.Hash;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/// Collects the signature checks of many scripts, such as all inputs of a block, to verify them
+/// together in one parallel batch.
+///
+/// Scripts run with a verifier from {@link #verifier(int)}, which records the checks of
+/// `SIGNATURE_CHECK_VERIFY` and `SIGNATURE_CHECK_MULTI_VERIFY` instead of running them, and lets
+/// the script continue as if they passed. That is safe because a failing check can only make the
+/// script fail, which {@link #verify} reports afterwards. Opcodes whose result the script goes on
+/// to use, like `SIGNATURE_CHECK`, are still verified on the spot, so no script takes a
+/// different path than it would have otherwise.
+public final class SignatureBatch {
+	private final SignatureVerifier signatureVerifier;
+	private final Queue<Check> checks = new ConcurrentLinkedQueue<>();
+
+	public SignatureBatch() {
+		this(SignatureVerifier.sequential());
+	}
+
+	/**
+	 * Creates a batch that verifies both the eager and the deferred checks with the given verifier.
+	 */
+	public SignatureBatch(SignatureVerifier signatureVerifier) {
+		this.signatureVerifier = signatureVerifier;
+	}
+
+	/**
+	 * Returns a verifier that records its deferrable checks under the given tag, which is how
+	 * {@link Result} tells the scripts of a batch apart.
+	 */
+	public SignatureVerifier verifier(int tag) {
+		return new Deferring(tag);
+	}
+
+	/**
+	 * The number of checks waiting to be verified.
+	 */
+	public int size() {
+		return checks.size();
+	}
+
+	/**
+	 * The tags that recorded a check still waiting to be verified, whose scripts are not known to
+	 * pass until then.
+	 */
+	public BitSet pendingTags() {
+		BitSet tags = new BitSet();
+		for (Check check : checks) {
+			tags.set(check.tag());
+		}
+		return tags;
+	}
+
+	/**
+	 * Verifies the recorded checks, spread over the executor, and blocks until they are done.
+	 * Once a check fails, the checks that have not started yet are skipped.
+	 */
+	public Result verify(Executor executor) {
+		List<Check> pending = new ArrayList<>(checks);
+		checks.clear();
+
+		int chunks = Math.min(pending.size(), Runtime.getRuntime().availableProcessors() * 4);
+		BitSet[] failed = new BitSet[chunks];
+		BitSet[] unchecked = new BitSet[chunks];
+		AtomicBoolean failing = new AtomicBoolean();
+
+		List<CompletableFuture<Void>> tasks = new ArrayList<>(chunks);
+		for (int chunk = 0; chunk < chunks; chunk++) {
+			int index = chunk;
+			List<Check> part = pending.subList(chunk * pending.size() / chunks, (chunk + 1) * pending.size() / chunks);
+			tasks.add(CompletableFuture.runAsync(() -> {
+				failed[index] = new BitSet();
+				unchecked[index] = new BitSet();
+				for (Check check : part) {
+					if (failing.get()) {
+						unchecked[index].set(check.tag());
+					} else if (!passes(check)) {
+						failed[index].set(check.tag());
+						failing.set(true);
+					}
+				}
+			}, executor));
+		}
+		CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+
+		Result result = new Result(new BitSet(), new BitSet());
+		for (int chunk = 0; chunk < chunks; chunk++) {
+			result.failed.or(failed[chunk]);
+			result.unchecked.or(unchecked[chunk]);
+		}
+		result.unchecked.andNot(result.failed);
+		return result;
+	}
+
+	private boolean passes(Check check) {
+		try {
+			return switch (check) {
+				case Single single -> signatureVerifier.check(single.signature(), single.publicKey(), single.hash());
+				case Multi multi -> signatureVerifier.checkMulti(multi.signatures(), multi.publicKeys(), multi.hash()) == multi.signatures().size();
+			};
+		} catch (ScriptException e) {
+			return false;
+		}
+	}
+
+	/// The outcome of a batch, by tag: tags with a check that failed, and tags with checks that
+	/// were skipped after an earlier failure and none that failed.
+	public record Result(BitSet failed, BitSet unchecked) {
+		public boolean passed() {
+			return failed.isEmpty() && unchecked.isEmpty();
+		}
+	}
+
+	private sealed interface Check {
+		int tag();
+	}
+
+	private record Single(int tag, ByteArray signature, ByteArray publicKey, Hash hash) implements Check { }
+
+	private record Multi(int tag, List<ByteArray> signatures, List<ByteArray> publicKeys, Hash hash) implements Check { }
+
+	private final class Deferring implements SignatureVerifier {
+		private final int tag;
+
+		Deferring(int tag) {
+			this.tag = tag;
+		}
+
+		@Override
+		public boolean check(ByteArray signature, ByteArray publicKey, Hash hash) throws ScriptException {
+			return signatureVerifier.check(signature, publicKey, hash);
+		}
+
+		@Override
+		public int checkMulti(List<ByteArray> signatures, List<ByteArray> publicKeys, Hash hash) throws ScriptException {
+			return signatureVerifier.checkMulti(signatures, publicKeys, hash);
+		}
+
+		@Override
+		public boolean defersChecks() {
+			return true;
+		}
+
+		@Override
+		public void checkVerify(ByteArray signature, ByteArray publicKey, Hash hash) {
+			checks.add(new Single(tag, signature, publicKey, hash));
+		}
+
+		@Override
+		public void checkMultiVerify(List<ByteArray> signatures, List<ByteArray> publicKeys, Hash hash) {
+			checks.add(new Multi(tag, List.copyOf(signatures), List.copyOf(publicKeys), hash));
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package currycoin.script;
+
+import currycoin.Hash;
+
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/// A bounded, thread-safe cache of signature checks that are known to have succeeded.
+///
+/// Only successful verifications are stored, so an evicted or missing entry simply means the
+/// signature gets verified again. Once the cache is full, the oldest entries are evicted first.
+/// Signatures and keys are stored compacted, so an entry never holds on to the transaction or
+/// script their bytes were sliced from.
+public final class SignatureCache {
+	public static final int DEFAULT_CAPACITY = 50_000;
+
+	private record Entry(ByteArray signature, ByteArray publicKey, Hash hash) { }
+
+	private final int capacity;
+	private final Set<Entry> entries = ConcurrentHashMap.newKeySet();
+	private final Queue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger size = new AtomicInteger();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	public SignatureCache(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive");
+		}
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Checks whether the signature is already known to be valid for the public key and hash.
+	 */
+	public boolean contains(ByteArray signature, ByteArray publicKey, Hash hash) {
+		boolean hit = entries.contains(new Entry(signature, publicKey, hash));
+		(hit ? hits : misses).increment();
+		return hit;
+	}
+
+	/**
+	 * Records a successful verification, evicting the oldest entries if the cache is full.
+	 */
+	public void add(ByteArray signature, ByteArray publicKey, Hash hash) {
+		Entry entry = new Entry(signature.compact(), publicKey.compact(), hash);
+		if (!entries.add(entry)) {
+			return;
+		}
+
+		insertionOrder.offer(entry);
+		if (size.incrementAndGet() > capacity) {
+			evict();
+		}
+	}
+
+	private void evict() {
+		while (size.get() > capacity) {
+			Entry eldest = insertionOrder.poll();
+			if (eldest == null) {
+				return;
+			}
+			if (entries.remove(eldest)) {
+				size.decrementAndGet();
+			}
+		}
+	}
+
+	public void clear() {
+		Entry entry;
+		while ((entry = insertionOrder.poll()) != null) {
+			if (entries.remove(entry)) {
+				size.decrementAndGet();
+			}
+		}
+	}
+
+	public int size() {
+		return size.get();
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+	public long hits() {
+		return hits.sum();
+	}
+
+	public long misses() {
+		return misses.sum();
+	}
+
+	private static final SignatureCache SHARED = new SignatureCache(DEFAULT_CAPACITY);
+
+	/// The cache consulted by the signature opcodes.
+	public static SignatureCache shared() {
+		return SHARED;
+	}
+}
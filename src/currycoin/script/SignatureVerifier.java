@@ -0,0 +1,124 @@
+package currycoin.script;
+
+import currycoin.CryptoEngines;
+import currycoin.Hash;
+
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.security.interfaces.ECPublicKey;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+
+/// Checks signatures on behalf of the signature opcodes.
+///
+/// A {@link ScriptStack} carries the verifier its script runs with, so callers can choose
+/// how signature work is scheduled without the opcodes knowing about it.
+@FunctionalInterface
+public interface SignatureVerifier {
+	/**
+	 * Checks whether the signature over the hash was made with the private key of the public key.
+	 * Malformed signatures and keys are reported as not matching.
+	 */
+	boolean check(ByteArray signature, ByteArray publicKey, Hash hash) throws ScriptException;
+
+	/**
+	 * Matches signatures against public keys in order: each signature is checked against the
+	 * keys following the one matched by the previous signature, and a key is never tried twice.
+	 *
+	 * @return the number of leading signatures that found a match
+	 */
+	default int checkMulti(List<ByteArray> signatures, List<ByteArray> publicKeys, Hash hash) throws ScriptException {
+		int key = 0;
+		for (int i = 0; i < signatures.size(); i++) {
+			boolean matched = false;
+			while (!matched && key < publicKeys.size()) {
+				matched = check(signatures.get(i), publicKeys.get(key++), hash);
+			}
+
+			if (!matched) {
+				return i;
+			}
+		}
+		return signatures.size();
+	}
+
+	/**
+	 * Checks a signature that the script cannot continue without, as for
+	 * {@code SIGNATURE_CHECK_VERIFY}. Since nothing in the script depends on the outcome besides
+	 * failing, a verifier may record the check and run it later instead, as long as the result of
+	 * the script is not trusted before then.
+	 *
+	 * @throws ScriptException.VerificationException if the signature does not match
+	 */
+	default void checkVerify(ByteArray signature, ByteArray publicKey, Hash hash) throws ScriptException {
+		if (!check(signature, publicKey, hash)) {
+			throw new ScriptException.VerificationException("Signature does not match!!!!!");
+		}
+	}
+
+	/**
+	 * Checks that every signature finds a match as by {@link #checkMulti}, for
+	 * {@code SIGNATURE_CHECK_MULTI_VERIFY}. Like {@link #checkVerify}, the check may be deferred.
+	 *
+	 * @throws ScriptException.VerificationException if a signature does not match
+	 */
+	default void checkMultiVerify(List<ByteArray> signatures, List<ByteArray> publicKeys, Hash hash) throws ScriptException {
+		if (checkMulti(signatures, publicKeys, hash) != signatures.size()) {
+			throw new ScriptException.VerificationException("Multi-signature verification failed");
+		}
+	}
+
+	/**
+	 * Whether {@link #checkVerify} and {@link #checkMultiVerify} may return before their check is
+	 * done, so that a script passing with this verifier is not known to pass yet.
+	 */
+	default boolean defersChecks() {
+		return false;
+	}
+
+	/// Verifies every signature on the calling thread.
+	static SignatureVerifier sequential() {
+		return SignatureVerifier::verify;
+	}
+
+	/// Verifies single signatures on the calling thread, but verifies the next candidate keys of
+	/// a multi-signature check ahead of time on the executor, which must not be the pool the
+	/// scripts run on.
+	static SignatureVerifier parallel(Executor executor) {
+		return new ParallelSignatureVerifier(executor, sequential());
+	}
+
+	/**
+	 * Runs the ECDSA verification, going through the shared key and signature caches.
+	 */
+	static boolean verify(ByteArray signature, ByteArray publicKey, Hash hash) throws ScriptException {
+		SignatureCache cache = SignatureCache.shared();
+		if (cache.contains(signature, publicKey, hash)) {
+			return true;
+		}
+
+		try {
+			Optional<ECPublicKey> ecPublicKey = PublicKeyCache.shared().decode(publicKey);
+			if (ecPublicKey.isEmpty()) {
+				return false; // mal-formatted public key
+			}
+
+			Signature sig = CryptoEngines.ecdsa();
+			sig.initVerify(ecPublicKey.get());
+			hash.addToSignature(sig);
+
+			boolean verified = signature.verifies(sig);
+			if (verified) {
+				cache.add(signature, publicKey, hash);
+			}
+			return verified;
+		} catch (NoSuchAlgorithmException | InvalidKeyException e) {
+			throw new ScriptException.InvalidScriptException("EC not supported", e);
+		} catch (SignatureException e) {
+			return false; // this is a mal-formatted signature, not a system failure
+		}
+	}
+}
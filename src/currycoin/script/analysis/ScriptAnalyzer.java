@@ -0,0 +1,389 @@
+package currycoin.script.analysis;
+
+import currycoin.Hash;
+import currycoin.script.ByteArray;
+import currycoin.script.Script;
+import currycoin.script.ScriptException;
+import currycoin.script.ScriptStack;
+import currycoin.script.instructions.ConditionalBlock;
+import currycoin.script.instructions.Instruction;
+import currycoin.script.instructions.LoadInstruction;
+import currycoin.script.instructions.Opcode;
+import currycoin.script.instructions.OrdinaryInstruction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/// Computes a {@link ScriptCost} without running a script, by walking its instruction tree once
+/// over an abstract stack.
+///
+/// The abstract stack knows its depth as a range, and, for as many items from the top as it
+/// can, the longest each item can be and whether it is a constant int. Constants come from
+/// loads and from arithmetic over constants, which is what usually feeds the key counts of
+/// multi-signature checks and the conditions of conditional blocks. A condition that is not
+/// constant makes the analyzer follow both branches and join them, keeping the more expensive
+/// side of every bound, so the analysis is linear in the size of the script.
+///
+/// Where nothing is known, the bounds fall back to what the stack can hold: a multi-signature
+/// check with an unknown key count is assumed to check every key the stack could provide.
+public final class ScriptAnalyzer {
+	/// No item is ever longer than the largest load, hashes being shorter.
+	private static final int MAX_ITEM_LENGTH = LoadInstruction.MAX_NUM_BYTES;
+
+	private ScriptAnalyzer() { }
+
+	/**
+	 * Analyzes scripts that run one after the other on the same, initially empty stack, as the
+	 * locking and unlocking script of an input do.
+	 */
+	public static ScriptCost analyze(Script... scripts) {
+		State state = new State();
+		for (Script script : scripts) {
+			run(script.instructions(), state);
+		}
+
+		return new ScriptCost(
+				saturate(state.signatureOperations),
+				saturate(state.peakDepth),
+				saturate(state.instructions),
+				state.pushedBytes,
+				state.dead);
+	}
+
+	private static int saturate(long value) {
+		return (int) Math.min(value, Integer.MAX_VALUE);
+	}
+
+	private static void run(List<Instruction> instructions, State state) {
+		for (Instruction instruction : instructions) {
+			if (state.dead) {
+				return;
+			}
+
+			state.instructions++;
+			switch (instruction) {
+				case LoadInstruction load -> state.push(Item.of(load.data()), true);
+				case ConditionalBlock block -> {
+					Item condition = state.pop();
+					if (condition.constant()) {
+						run(condition.value() != 0 ? block.whenTrue() : block.whenFalse(), state);
+					} else {
+						State otherwise = state.copy();
+						run(block.whenTrue(), state);
+						run(block.whenFalse(), otherwise);
+						state.join(otherwise);
+					}
+				}
+				case OrdinaryInstruction ordinary -> run(ordinary, state);
+			}
+		}
+	}
+
+	private static void run(OrdinaryInstruction instruction, State state) {
+		Opcode opcode = instruction.opcode();
+		if (opcode.costClass() == Opcode.CostClass.SIGNATURE) {
+			state.signatureOperations++;
+		}
+
+		switch (instruction) {
+			case PUSH_1, PUSH_NEGATIVE_1 -> state.push(Item.ofInt(-1), true);
+			case NO_OPERATION -> { }
+			case VERIFY -> {
+				Item condition = state.pop();
+				if (condition.constant() && condition.value() == 0) state.dead = true;
+			}
+			case RETURN_FAIL -> state.dead = true;
+			case DUPLICATE_CONDITIONAL -> {
+				Item top = state.pop();
+				state.push(top, false);
+				if (top.constant()) {
+					if (top.value() != 0) state.push(top, true);
+				} else {
+					State duplicated = state.copy();
+					duplicated.push(top, true);
+					state.join(duplicated);
+				}
+			}
+			case GET_STACK_DEPTH -> state.push(state.minDepth == state.maxDepth
+					? Item.ofInt(state.minDepth)
+					: Item.unknownInt(ByteArray.intLength(state.maxDepth)), true);
+			case DROP_ITEM -> state.pop();
+			case DUPLICATE_ITEM -> state.rearrange(1, 0, 0);
+			case REMOVE_SECOND -> state.rearrange(2, 0);
+			case COPY_SECOND -> state.rearrange(2, 1, 0, 1);
+			case COPY_ITEM -> {
+				Item index = state.pop();
+				if (!index.constant()) {
+					if (state.maxDepth == 0) state.dead = true;
+					state.known.clear(); // the items above the copied one come back reversed
+					state.push(Item.UNKNOWN, true);
+				} else if (index.value() < 0 || index.value() >= state.maxDepth) {
+					state.dead = true;
+				} else {
+					// the items above the copied one are pushed back in the order they were popped
+					int[] order = new int[index.value() + 2];
+					order[0] = index.value();
+					for (int i = 0; i < index.value(); i++) {
+						order[i + 1] = i;
+					}
+					order[index.value() + 1] = index.value();
+					state.rearrange(index.value() + 1, order);
+				}
+			}
+			case ROLL_ITEM -> {
+				Item index = state.pop();
+				if (!index.constant()) {
+					if (state.maxDepth == 0) state.dead = true;
+					state.known.clear(); // any item may have moved to the top
+				} else if (index.value() < 0 || index.value() >= state.maxDepth) {
+					state.dead = true;
+				} else {
+					int[] order = new int[index.value() + 1];
+					for (int i = 0; i <= index.value(); i++) {
+						order[i] = i;
+					}
+					state.rearrange(index.value() + 1, order);
+				}
+			}
+			case ROTATE_THREE -> state.rearrange(3, 1, 0, 2);
+			case SWAP_TWO -> state.rearrange(2, 0, 1);
+			case TUCK -> state.rearrange(2, 0, 1, 0);
+			case DROP_TWO -> state.rearrange(2);
+			case DUPLICATE_TWO -> state.rearrange(2, 1, 0, 1, 0);
+			case DUPLICATE_THREE -> state.rearrange(3, 2, 1, 0, 2, 1, 0);
+			case COPY_SECOND_PAIR -> state.rearrange(4, 3, 2, 1, 0, 3, 2);
+			case ROTATE_THREE_PAIRS -> state.rearrange(6, 3, 2, 1, 0, 5, 4);
+			case SWAP_TWO_PAIRS -> state.rearrange(4, 1, 0, 3, 2);
+			case GET_ITEM_SIZE -> {
+				Item top = state.pop();
+				state.push(top, false);
+				state.push(Item.unknownInt(ByteArray.intLength(top.maxLength())), true);
+			}
+			case BYTES_EQUAL, SIGNATURE_CHECK -> state.replace(opcode.pops(), Item.BOOLEAN);
+			case VERIFY_BYTES_EQUAL, SIGNATURE_CHECK_VERIFY -> state.pop(opcode.pops(), opcode.pops());
+			case ARITHMETIC_ADD_1, ARITHMETIC_SUB_1, ARITHMETIC_NEG, ARITHMETIC_ABS,
+				 ARITHMETIC_ADD, ARITHMETIC_SUB, ARITHMETIC_MIN, ARITHMETIC_MAX -> state.arithmetic(instruction, opcode.pops(), Item.INT);
+			case ARITHMETIC_NOT, ARITHMETIC_0_NOT_EQUAL, ARITHMETIC_BOOL_AND, ARITHMETIC_BOOL_OR,
+				 ARITHMETIC_NUM_EQUAL, ARITHMETIC_NUM_EQUAL_VERIFY, ARITHMETIC_NUM_NOT_EQUAL,
+				 ARITHMETIC_LESS_THAN, ARITHMETIC_GREATER_THAN, ARITHMETIC_LESS_THAN_OR_EQUAL,
+				 ARITHMETIC_GREATER_THAN_OR_EQUAL, ARITHMETIC_WITHIN -> state.arithmetic(instruction, opcode.pops(), Item.BOOLEAN);
+			case HASH_SHA256, HASH_TWICE_SHA256 -> state.replace(opcode.pops(), Item.HASH);
+			case SIGNATURE_CHECK_ADD -> state.replace(opcode.pops(), Item.INT);
+			case SIGNATURE_CHECK_MULTI -> {
+				multiSignature(state, false);
+				state.push(Item.BOOLEAN, true);
+			}
+			case SIGNATURE_CHECK_MULTI_VERIFY -> multiSignature(state, true);
+		}
+	}
+
+	/**
+	 * Every key is tried at most once, so a multi-signature check costs as many signature
+	 * operations as it has keys.
+	 */
+	private static void multiSignature(State state, boolean verify) {
+		Item keyCount = state.pop();
+		if (keyCount.constant()) {
+			state.signatureOperations += Math.max(keyCount.value(), 0);
+			state.pop(keyCount.value(), keyCount.value());
+		} else {
+			int keys = Math.max(state.maxDepth - 1, 0); // the signature count still has to follow
+			state.signatureOperations += keys;
+			state.pop(0, keys);
+		}
+
+		Item signatureCount = state.pop();
+		if (!signatureCount.constant()) {
+			state.pop(0, state.maxDepth);
+		} else if (verify) {
+			state.pop(signatureCount.value(), signatureCount.value()); // passing consumes all of them
+		} else {
+			// signatures are consumed up to the first one without a match
+			state.pop(Math.min(signatureCount.value(), 1), signatureCount.value());
+		}
+	}
+
+	/// What is known about an item.
+	private record Item(int maxLength, boolean constant, int value) {
+		static final Item UNKNOWN = new Item(MAX_ITEM_LENGTH, false, 0);
+		static final Item INT = unknownInt(Integer.BYTES);
+		static final Item BOOLEAN = unknownInt(1);
+		static final Item HASH = new Item(Hash.BYTES, false, 0);
+
+		static Item of(ByteArray data) {
+			return data.isInt() ? new Item(data.length(), true, data.toInt()) : new Item(data.length(), false, 0);
+		}
+
+		static Item ofInt(int value) {
+			return new Item(ByteArray.intLength(value), true, value);
+		}
+
+		static Item unknownInt(int maxLength) {
+			return new Item(maxLength, false, 0);
+		}
+
+		Item join(Item other) {
+			if (equals(other)) {
+				return this;
+			}
+			return new Item(Math.max(maxLength, other.maxLength), false, 0);
+		}
+	}
+
+	/// The abstract stack of one path through the script, and what that path has cost so far.
+	private static final class State {
+		// the top items of the stack, bottom first; items below these are unknown
+		final ArrayList<Item> known = new ArrayList<>();
+		int minDepth;
+		int maxDepth;
+		boolean dead;
+
+		long instructions;
+		long signatureOperations;
+		long pushedBytes;
+		int peakDepth;
+
+		State copy() {
+			State copy = new State();
+			copy.known.addAll(known);
+			copy.minDepth = minDepth;
+			copy.maxDepth = maxDepth;
+			copy.dead = dead;
+			copy.instructions = instructions;
+			copy.signatureOperations = signatureOperations;
+			copy.pushedBytes = pushedBytes;
+			copy.peakDepth = peakDepth;
+			return copy;
+		}
+
+		/**
+		 * Makes this state cover the other one as well.
+		 */
+		void join(State other) {
+			instructions = Math.max(instructions, other.instructions);
+			signatureOperations = Math.max(signatureOperations, other.signatureOperations);
+			pushedBytes = Math.max(pushedBytes, other.pushedBytes);
+			peakDepth = Math.max(peakDepth, other.peakDepth);
+
+			if (other.dead) {
+				return;
+			} else if (dead) {
+				dead = false;
+				known.clear();
+				known.addAll(other.known);
+				minDepth = other.minDepth;
+				maxDepth = other.maxDepth;
+				return;
+			}
+
+			// both stacks have at least the common number of known items on top
+			int common = Math.min(known.size(), other.known.size());
+			List<Item> joined = new ArrayList<>(common);
+			for (int i = common; i > 0; i--) {
+				joined.add(known.get(known.size() - i).join(other.known.get(other.known.size() - i)));
+			}
+			known.clear();
+			known.addAll(joined);
+			minDepth = Math.min(minDepth, other.minDepth);
+			maxDepth = Math.max(maxDepth, other.maxDepth);
+		}
+
+		Item pop() {
+			if (maxDepth == 0) {
+				dead = true;
+				return Item.UNKNOWN;
+			}
+
+			minDepth = Math.max(minDepth - 1, 0);
+			maxDepth--;
+			return known.isEmpty() ? Item.UNKNOWN : known.removeLast();
+		}
+
+		/**
+		 * Pops between {@code least} and {@code most} items.
+		 */
+		void pop(int least, int most) {
+			least = Math.max(least, 0);
+			most = Math.max(most, least);
+			if (least > maxDepth) {
+				dead = true;
+			} else if (least == most) {
+				for (int i = 0; i < least; i++) {
+					pop();
+				}
+			} else {
+				known.clear();
+				minDepth = Math.max(minDepth - most, 0);
+				maxDepth -= least;
+			}
+		}
+
+		void push(Item item, boolean fresh) {
+			if (dead) {
+				return;
+			}
+
+			known.add(item);
+			minDepth++;
+			maxDepth++;
+			peakDepth = Math.max(peakDepth, maxDepth);
+			if (fresh) {
+				pushedBytes += item.maxLength();
+			}
+		}
+
+		/**
+		 * Pops {@code count} items and pushes them back in the given order, where 0 is the item
+		 * that was on top. An item pushed more than once is a copy, and adds its bytes.
+		 */
+		void rearrange(int count, int... order) {
+			Item[] items = new Item[count];
+			for (int i = 0; i < count; i++) {
+				items[i] = pop();
+			}
+
+			boolean[] pushed = new boolean[count];
+			for (int index : order) {
+				push(items[index], pushed[index]);
+				pushed[index] = true;
+			}
+		}
+
+		/**
+		 * Pops the operands and pushes a result that is not known.
+		 */
+		void replace(int operands, Item result) {
+			pop(operands, operands);
+			push(result, true);
+		}
+
+		/**
+		 * Pops the int operands and pushes the result, computing it by running the instruction
+		 * when all operands are constant.
+		 */
+		void arithmetic(OrdinaryInstruction instruction, int operands, Item result) {
+			Item[] items = new Item[operands];
+			boolean constant = true;
+			for (int i = 0; i < operands; i++) {
+				items[i] = pop();
+				constant &= items[i].constant();
+			}
+
+			if (!constant || dead) {
+				push(result, true);
+				return;
+			}
+
+			ScriptStack stack = new ScriptStack(Hash.empty());
+			try {
+				for (int i = operands - 1; i >= 0; i--) {
+					stack.pushInt(items[i].value());
+				}
+				instruction.execute(stack);
+				push(Item.ofInt(stack.popInt()), true);
+			} catch (ScriptException e) {
+				dead = true;
+			}
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package currycoin.script.analysis;
+
+import currycoin.script.ExecutionLimits;
+
+/// Upper bounds on what running a script can cost, as computed by {@link ScriptAnalyzer}.
+///
+/// @param signatureOperations the most signature verifications any path can attempt
+/// @param maxStackDepth the deepest the stack can get
+/// @param maxInstructions the most instructions any path can execute, conditional blocks included
+/// @param maxPushedBytes the most bytes any path can add to the stack: everything loaded,
+///                       computed or copied onto it, so also a bound on the stack's size in bytes
+/// @param alwaysFails whether every path is known to fail
+public record ScriptCost(int signatureOperations, int maxStackDepth, int maxInstructions, long maxPushedBytes, boolean alwaysFails) {
+	/**
+	 * Whether no execution can exceed the given limits.
+	 */
+	public boolean fitsWithin(ExecutionLimits limits) {
+		return signatureOperations <= limits.maxSignatureOperations()
+				&& maxStackDepth <= limits.maxStackDepth()
+				&& maxInstructions <= limits.maxInstructions()
+				&& maxPushedBytes <= limits.maxStackBytes();
+	}
+}
@@ -0,0 +1,88 @@
+package currycoin.script.assembly;
+
+import currycoin.script.ByteArray;
+import currycoin.script.Script;
+import currycoin.script.ScriptException;
+import currycoin.script.instructions.LoadInstruction;
+import currycoin.script.instructions.Opcode;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/// Reads scripts in the assembly text format written by {@link Disassembler}.
+///
+/// Tokens may be separated by any whitespace, and hex digits may be in either case. Every token
+/// is turned into its opcode byte, and the resulting encoding is parsed like any other, so the
+/// text is held to the same rules as binary scripts.
+public final class Assembler {
+	private static final Map<String, Opcode> OPCODES = new HashMap<>();
+
+	static {
+		for (int value = 0; value < 256; value++) {
+			Opcode opcode = Opcode.of((byte) value);
+			if (opcode.kind() != Opcode.Kind.LOAD && opcode.kind() != Opcode.Kind.INVALID) {
+				OPCODES.put(opcode.mnemonic(), opcode);
+			}
+		}
+	}
+
+	private Assembler() { }
+
+	/**
+	 * @throws ScriptException.InvalidScriptException if a token is not an opcode or a valid push,
+	 * or the opcodes do not form a valid script
+	 */
+	public static Script assemble(CharSequence text) throws ScriptException.InvalidScriptException {
+		ByteBuffer encoding = ByteBuffer.allocate(Math.max(text.length() / 2, 16));
+		for (int end = 0; ; ) {
+			int start = end;
+			while (start < text.length() && Character.isWhitespace(text.charAt(start))) {
+				start++;
+			}
+			if (start == text.length()) {
+				break;
+			}
+			end = start;
+			while (end < text.length() && !Character.isWhitespace(text.charAt(end))) {
+				end++;
+			}
+
+			if (end - start >= 2 && text.charAt(start) == '0' && text.charAt(start + 1) == 'x') {
+				ByteArray data = push(text, start, end);
+				encoding = reserve(encoding, 1 + data.length());
+				encoding.put((byte) data.length());
+				data.apply(encoding);
+			} else {
+				Opcode opcode = OPCODES.get(text.subSequence(start, end).toString());
+				if (opcode == null) {
+					throw new ScriptException.InvalidScriptException("Unknown mnemonic: " + text.subSequence(start, end));
+				}
+				encoding = reserve(encoding, 1);
+				encoding.put(opcode.value());
+			}
+		}
+		return Script.parseFrom(encoding.flip());
+	}
+
+	private static ByteArray push(CharSequence text, int start, int end) throws ScriptException.InvalidScriptException {
+		if ((end - start - 2) / 2 > LoadInstruction.MAX_NUM_BYTES) {
+			throw new ScriptException.InvalidScriptException("Push longer than " + LoadInstruction.MAX_NUM_BYTES + " bytes: " + text.subSequence(start, end));
+		}
+
+		try {
+			return ByteArray.fromHex(text, start + 2, end);
+		} catch (IllegalArgumentException e) {
+			throw new ScriptException.InvalidScriptException("Invalid push: " + text.subSequence(start, end), e);
+		}
+	}
+
+	private static ByteBuffer reserve(ByteBuffer buffer, int bytes) {
+		if (buffer.remaining() >= bytes) {
+			return buffer;
+		}
+
+		ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+		return grown.put(buffer.flip());
+	}
+}
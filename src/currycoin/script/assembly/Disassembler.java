@@ -0,0 +1,125 @@
+package currycoin.script.assembly;
+
+import currycoin.script.ByteArray;
+import currycoin.script.Script;
+import currycoin.script.instructions.ConditionalBlock;
+import currycoin.script.instructions.Instruction;
+import currycoin.script.instructions.LoadInstruction;
+import currycoin.script.instructions.Opcode;
+import currycoin.script.instructions.OrdinaryInstruction;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/// Writes scripts in their assembly text format, which {@link Assembler} reads back.
+///
+/// The text has one token per opcode of the encoding, separated by single spaces: pushes are
+/// `0x` followed by their data in lowercase hex, everything else is the mnemonic of its
+/// {@link Opcode}. Blocks are spelled the way they are encoded, so a block with both branches
+/// reads `IF ... ENDIF ELSE ... ENDIF`, and one with only a false branch `NOTIF ... ENDIF`.
+///
+/// Output goes straight into the sink, token by token, without building strings on the way.
+public final class Disassembler {
+	private static final String IF = Opcode.of(ConditionalBlock.IF_OPCODE).mnemonic();
+	private static final String NOT_IF = Opcode.of(ConditionalBlock.NOT_IF_OPCODE).mnemonic();
+	private static final String ELSE = Opcode.of(ConditionalBlock.ELSE_OPCODE).mnemonic();
+	private static final String ENDIF = Opcode.of(ConditionalBlock.ENDIF_OPCODE).mnemonic();
+
+	private final Appendable out;
+	private boolean first = true;
+
+	private Disassembler(Appendable out) {
+		this.out = out;
+	}
+
+	public static String disassemble(Script script) {
+		StringBuilder builder = new StringBuilder(script.byteSize() * 2);
+		try {
+			disassemble(script, builder);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e); // a StringBuilder does not throw
+		}
+		return builder.toString();
+	}
+
+	public static void disassemble(Script script, Appendable out) throws IOException {
+		new Disassembler(out).write(script.instructions());
+	}
+
+	/**
+	 * Writes the text as ASCII bytes. The stream is written to a byte at a time, so it should be
+	 * buffered.
+	 */
+	public static void disassemble(Script script, OutputStream out) throws IOException {
+		disassemble(script, new AsciiAppendable(out));
+	}
+
+	private void write(List<Instruction> instructions) throws IOException {
+		for (Instruction instruction : instructions) {
+			switch (instruction) {
+				case LoadInstruction load -> push(load.data());
+				case OrdinaryInstruction ordinary -> token(ordinary.opcode().mnemonic());
+				case ConditionalBlock block -> write(block);
+			}
+		}
+	}
+
+	private void write(ConditionalBlock block) throws IOException {
+		if (block.whenFalse().isEmpty()) {
+			token(IF);
+			write(block.whenTrue());
+		} else if (block.whenTrue().isEmpty()) {
+			token(NOT_IF);
+			write(block.whenFalse());
+		} else {
+			token(IF);
+			write(block.whenTrue());
+			token(ENDIF);
+			token(ELSE);
+			write(block.whenFalse());
+		}
+		token(ENDIF);
+	}
+
+	private void token(String mnemonic) throws IOException {
+		separate();
+		out.append(mnemonic);
+	}
+
+	private void push(ByteArray data) throws IOException {
+		separate();
+		out.append('0').append('x');
+		data.appendHex(out);
+	}
+
+	private void separate() throws IOException {
+		if (!first) {
+			out.append(' ');
+		}
+		first = false;
+	}
+
+	/// Text made of ASCII characters only, written out one byte per character.
+	private record AsciiAppendable(OutputStream out) implements Appendable {
+		@Override
+		public Appendable append(char c) throws IOException {
+			out.write(c);
+			return this;
+		}
+
+		@Override
+		public Appendable append(CharSequence text) throws IOException {
+			return append(text, 0, text.length());
+		}
+
+		@Override
+		public Appendable append(CharSequence text, int start, int end) throws IOException {
+			for (int i = start; i < end; i++) {
+				out.write(text.charAt(i));
+			}
+			return this;
+		}
+	}
+}
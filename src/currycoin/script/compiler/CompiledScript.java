@@ -0,0 +1,153 @@
+package currycoin.script.compiler;
+
+import currycoin.script.ByteArray;
+import currycoin.script.ExecutionBudget;
+import currycoin.script.Script;
+import currycoin.script.ScriptException;
+import currycoin.script.ScriptStack;
+import currycoin.script.instructions.ConditionalBlock;
+import currycoin.script.instructions.Instruction;
+import currycoin.script.instructions.LoadInstruction;
+import currycoin.script.instructions.OrdinaryInstruction;
+import currycoin.script.metrics.ScriptMetrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/// A {@link Script} lowered into a flat program for a switch-based interpreter loop.
+///
+/// The program is an `int[]` where every entry is either the ordinal of an
+/// {@link OrdinaryInstruction} or one of the negative control opcodes below, followed by its
+/// operand. Conditional blocks become conditional jumps with precomputed targets, so executing
+/// a script never recurses and never dispatches through the {@link Instruction} interface.
+/// Running a compiled script has exactly the same effect on the stack as {@link Script#execute}.
+public final class CompiledScript {
+	/// Pushes `constants[operand]`.
+	static final int LOAD = -1;
+	/// Continues at `operand`.
+	static final int JUMP = -2;
+	/// Pops the condition and continues at `operand` if it is false.
+	static final int JUMP_IF_FALSE = -3;
+	/// Pops the condition and continues at `operand` if it is true.
+	static final int JUMP_IF_TRUE = -4;
+
+	private static final OrdinaryInstruction[] ORDINARY = OrdinaryInstruction.values();
+
+	private final int[] code;
+	private final ByteArray[] constants;
+
+	private CompiledScript(int[] code, ByteArray[] constants) {
+		this.code = code;
+		this.constants = constants;
+	}
+
+	public static CompiledScript compile(Script script) {
+		Compiler compiler = new Compiler();
+		compiler.emit(script.instructions());
+		return new CompiledScript(Arrays.copyOf(compiler.code, compiler.length), compiler.constants.toArray(new ByteArray[0]));
+	}
+
+	public void execute(ScriptStack stack) throws ScriptException {
+		ExecutionBudget budget = stack.budget();
+		int[] code = this.code;
+		int pc = 0;
+		while (pc < code.length) {
+			int op = code[pc++];
+			if (op != JUMP) {
+				budget.chargeInstruction(); // the conditional jumps stand for their block
+			}
+			if (ScriptMetrics.ENABLED) {
+				count(op);
+			}
+
+			switch (op) {
+				case LOAD -> stack.push(constants[code[pc++]]);
+				case JUMP -> pc = code[pc];
+				case JUMP_IF_FALSE -> pc = stack.popBoolean() ? pc + 1 : code[pc];
+				case JUMP_IF_TRUE -> pc = stack.popBoolean() ? code[pc] : pc + 1;
+				default -> {
+					if (ScriptMetrics.ENABLED) ScriptMetrics.execute(ORDINARY[op], stack);
+					else ORDINARY[op].execute(stack);
+				}
+			}
+		}
+	}
+
+	private static void count(int op) {
+		switch (op) {
+			case LOAD -> ScriptMetrics.countLoad();
+			case JUMP_IF_FALSE, JUMP_IF_TRUE -> ScriptMetrics.countConditional();
+			default -> { } // ordinary opcodes are counted as they run, plain jumps not at all
+		}
+	}
+
+	/**
+	 * The length of the program in ints, including operands.
+	 */
+	public int length() {
+		return code.length;
+	}
+
+	private static final class Compiler {
+		private int[] code = new int[32];
+		private int length;
+		private final List<ByteArray> constants = new ArrayList<>();
+
+		void emit(List<Instruction> instructions) {
+			for (Instruction instruction : instructions) {
+				emit(instruction);
+			}
+		}
+
+		void emit(Instruction instruction) {
+			switch (instruction) {
+				case LoadInstruction load -> {
+					append(LOAD);
+					append(constants.size());
+					constants.add(load.data());
+				}
+				case OrdinaryInstruction ordinary -> append(ordinary.ordinal());
+				case ConditionalBlock block -> emit(block);
+			}
+		}
+
+		void emit(ConditionalBlock block) {
+			if (block.whenFalse().isEmpty()) {
+				int end = jump(JUMP_IF_FALSE);
+				emit(block.whenTrue());
+				patch(end);
+			} else if (block.whenTrue().isEmpty()) {
+				int end = jump(JUMP_IF_TRUE);
+				emit(block.whenFalse());
+				patch(end);
+			} else {
+				int otherwise = jump(JUMP_IF_FALSE);
+				emit(block.whenTrue());
+				int end = jump(JUMP);
+				patch(otherwise);
+				emit(block.whenFalse());
+				patch(end);
+			}
+		}
+
+		/// Emits a jump with a placeholder target, returning the position of the target.
+		private int jump(int op) {
+			append(op);
+			append(-1);
+			return length - 1;
+		}
+
+		/// Points the jump target at the given position to the end of the program so far.
+		private void patch(int target) {
+			code[target] = length;
+		}
+
+		private void append(int value) {
+			if (length == code.length) {
+				code = Arrays.copyOf(code, length * 2);
+			}
+			code[length++] = value;
+		}
+	}
+}
@@ -1,37 +1,70 @@
 package currycoin.script.instructions;
 
+import currycoin.script.ExecutionBudget;
 import currycoin.script.ScriptException;
 import currycoin.script.ScriptStack;
+import currycoin.script.metrics.ScriptMetrics;
 
 import java.nio.ByteBuffer;
 import java.util.List;
 
-public record ConditionalBlock(List<Instruction> whenTrue, List<Instruction> whenFalse) implements Instruction {
-	public ConditionalBlock {
-		whenTrue = List.copyOf(whenTrue);
-		whenFalse = List.copyOf(whenFalse);
+/// An IF/NOTIF block, with the instructions to run when the popped condition is true or false.
+///
+/// The encoded size is computed once on construction from the (already known) sizes of the
+/// children, so sizing a deeply nested block is linear rather than quadratic.
+public final class ConditionalBlock implements Instruction {
+	private final List<Instruction> whenTrue;
+	private final List<Instruction> whenFalse;
+	private final int byteSize;
+
+	public ConditionalBlock(List<Instruction> whenTrue, List<Instruction> whenFalse) {
+		this.whenTrue = List.copyOf(whenTrue);
+		this.whenFalse = List.copyOf(whenFalse);
+		this.byteSize = computeByteSize();
+	}
+
+	public List<Instruction> whenTrue() {
+		return whenTrue;
+	}
+
+	public List<Instruction> whenFalse() {
+		return whenFalse;
 	}
 
 	@Override
 	public void execute(ScriptStack stack) throws ScriptException {
-		boolean condition = stack.pop().asBoolean();
+		boolean condition = stack.popBoolean();
 		List<Instruction> instructions = condition ? whenTrue : whenFalse;
 
+		ExecutionBudget budget = stack.budget();
 		for (Instruction instruction : instructions) {
-			instruction.execute(stack);
+			budget.chargeInstruction();
+			if (ScriptMetrics.ENABLED) ScriptMetrics.execute(instruction, stack);
+			else instruction.execute(stack);
 		}
 	}
 
 	@Override
 	public int byteSize() {
+		return byteSize;
+	}
+
+	private int computeByteSize() {
 		if (whenFalse.isEmpty()) {
-			return whenTrue.stream().mapToInt(Instruction::byteSize).sum() + 2;
+			return sizeOf(whenTrue) + 2;
 		} else if (whenTrue.isEmpty()) {
-			return whenFalse.stream().mapToInt(Instruction::byteSize).sum() + 2;
+			return sizeOf(whenFalse) + 2;
 		} else {
-			return whenTrue.stream().mapToInt(Instruction::byteSize).sum()
-					+ whenFalse.stream().mapToInt(Instruction::byteSize).sum() + 4;
+			return sizeOf(whenTrue) + sizeOf(whenFalse) + 4;
+		}
+	}
+
+	private static int sizeOf(List<Instruction> instructions) {
+		int size = 0;
+		for (Instruction instruction : instructions) {
+			size += instruction.byteSize();
 		}
+		return size;
 	}
 
 	@Override
@@ -62,6 +95,22 @@ public record ConditionalBlock(List<Instruction> whenTrue, List<Instruction> whe
 		}
 	}
 
+	@Override
+	public boolean equals(Object o) {
+		return o == this || o instanceof ConditionalBlock block
+				&& whenTrue.equals(block.whenTrue) && whenFalse.equals(block.whenFalse);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * whenTrue.hashCode() + whenFalse.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return "ConditionalBlock[whenTrue=" + whenTrue + ", whenFalse=" + whenFalse + "]";
+	}
+
 	public static ConditionalBlock whenTrue(Instruction... whenTrue) {
 		return new ConditionalBlock(List.of(whenTrue), List.of());
 	}
@@ -4,10 +4,7 @@ import currycoin.script.ByteArray;
 import currycoin.script.ScriptException;
 import currycoin.script.ScriptStack;
 
-import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
-import java.util.List;
 
 public sealed interface Instruction permits LoadInstruction, ConditionalBlock, OrdinaryInstruction {
     void execute(ScriptStack stack) throws ScriptException;
@@ -15,70 +12,17 @@ public sealed interface Instruction permits LoadInstruction, ConditionalBlock, O
     void apply(ByteBuffer buffer);
 
     static Instruction parseFrom(ByteBuffer buffer) throws ScriptException.InvalidScriptException {
-        try {
-            return parseFrom0(buffer, 0);
-        } catch (BufferOverflowException e) {
-            throw new ScriptException.InvalidScriptException("Unexpected end of script", e);
-        }
+        return parseFrom(buffer, null);
     }
 
-    private static Instruction parseFrom0(ByteBuffer buffer, int depth) throws ScriptException.InvalidScriptException {
-        if (depth > 20) {
-            throw new ScriptException.InvalidScriptException("Maximum parsing stack depth exceeded!");
-        }
-        byte opcode = buffer.get();
-        if (LoadInstruction.isInRange(opcode)) {
-            byte[] data = new byte[opcode];
-            buffer.get(data);
-            return new LoadInstruction(opcode, new ByteArray(data));
-        } else if (opcode == ConditionalBlock.IF_OPCODE) {
-            List<Instruction> whenTrue = new ArrayList<>();
-            Instruction instruction;
-            while ((instruction = parseFrom0(buffer, depth + 1)) != null) {
-                whenTrue.add(instruction);
-            }
-
-            buffer.mark();
-            if (!buffer.hasRemaining() || buffer.get() != ConditionalBlock.ELSE_OPCODE) {
-                buffer.reset();
-                return new ConditionalBlock(whenTrue, List.of());
-            } else {
-                List<Instruction> whenFalse = new ArrayList<>();
-                while ((instruction = parseFrom0(buffer, depth + 1)) != null) {
-                    whenFalse.add(instruction);
-                }
-                return new ConditionalBlock(whenTrue, whenFalse);
-            }
-        } else if (opcode == ConditionalBlock.NOT_IF_OPCODE) {
-            List<Instruction> whenFalse = new ArrayList<>();
-            Instruction instruction;
-            while ((instruction = parseFrom0(buffer, depth + 1)) != null) {
-                whenFalse.add(instruction);
-            }
-
-            buffer.mark();
-            if (!buffer.hasRemaining() || buffer.get() != ConditionalBlock.ELSE_OPCODE) {
-                buffer.reset();
-                return new ConditionalBlock(List.of(), whenFalse);
-            } else {
-                List<Instruction> whenTrue = new ArrayList<>();
-                while ((instruction = parseFrom0(buffer, depth + 1)) != null) {
-                    whenFalse.add(instruction);
-                }
-                return new ConditionalBlock(whenTrue, whenFalse);
-            }
-        } else if (opcode == ConditionalBlock.ELSE_OPCODE) {
-            throw new ScriptException.InvalidScriptException("Unexpected ELSE opcode");
-        } else if (opcode == ConditionalBlock.ENDIF_OPCODE) {
-            if (depth == 0)
-                throw new ScriptException.InvalidScriptException("Unexpected ENDIF opcode");
-            return null;
-        } else {
-            // must be an ordinary instruction
-            int ordinal = Byte.toUnsignedInt(opcode) - OrdinaryInstruction.FIRST_OPCODE;
-            if (ordinal > OrdinaryInstruction.values().length)
-                throw new ScriptException.InvalidScriptException("Invalid opcode: " + opcode);
-            return OrdinaryInstruction.values()[ordinal];
-        }
+    /**
+     * Parses an instruction from a buffer over the contents of {@code source}, as returned by
+     * {@link ByteArray#asReadOnlyBuffer()}. Pushed data is then a view into {@code source}
+     * instead of a copy. With a null source, pushed data is copied out of the buffer.
+     *
+     * @see ScriptParser
+     */
+    static Instruction parseFrom(ByteBuffer buffer, ByteArray source) throws ScriptException.InvalidScriptException {
+        return ScriptParser.parseInstruction(buffer, source);
     }
 }
@@ -24,7 +24,7 @@ public record LoadInstruction(byte numBytes, ByteArray data) implements Instruct
 
 	@Override
 	public int byteSize() {
-		return numBytes + 1;
+		return 1 + Opcode.of(numBytes).operandLength();
 	}
 
 	@Override
@@ -0,0 +1,108 @@
+package currycoin.script.instructions;
+
+import static currycoin.script.instructions.Opcode.CostClass.*;
+
+/// What a single opcode byte stands for, looked up in a table of all 256 values.
+///
+/// The table is built once, so decoding an opcode is an array access: the {@link Kind} tells
+/// the parser what follows, and ordinary opcodes come with their instruction. The stack effect
+/// and {@link CostClass} let tools reason about a script without running it.
+///
+/// @param operandLength the number of bytes following the opcode, the pushed data of a load
+/// @param pops the number of items the opcode takes off the stack, or {@link #VARIABLE}
+/// @param pushes the number of items it puts on the stack, or {@link #VARIABLE}
+public record Opcode(byte value, Kind kind, String mnemonic, OrdinaryInstruction instruction,
+		int operandLength, int pops, int pushes, CostClass costClass) {
+	/// The stack effect depends on the items on the stack.
+	public static final int VARIABLE = -1;
+
+	public enum Kind {
+		LOAD, IF, NOT_IF, ELSE, ENDIF, ORDINARY, INVALID
+	}
+
+	/// A rough grouping of opcodes by the work they do.
+	public enum CostClass {
+		/// Loads and moving items around.
+		STACK,
+		/// Control flow and opcodes doing nothing else, including invalid ones, which never run.
+		CONTROL,
+		ARITHMETIC,
+		HASH,
+		/// One signature verification.
+		SIGNATURE,
+		/// As many signature verifications as there are keys.
+		MULTI_SIGNATURE
+	}
+
+	private static final Opcode[] TABLE = new Opcode[256];
+	private static final Opcode[] ORDINARY = new Opcode[OrdinaryInstruction.values().length];
+
+	static {
+		for (int i = 0; i < TABLE.length; i++) {
+			TABLE[i] = new Opcode((byte) i, Kind.INVALID, "INVALID_" + i, null, 0, 0, 0, CONTROL);
+		}
+		for (int i = LoadInstruction.MIN_NUM_BYTES; i <= LoadInstruction.MAX_NUM_BYTES; i++) {
+			TABLE[i] = new Opcode((byte) i, Kind.LOAD, "LOAD_" + i, null, i, 0, 1, STACK);
+		}
+		TABLE[ConditionalBlock.IF_OPCODE] = new Opcode(ConditionalBlock.IF_OPCODE, Kind.IF, "IF", null, 0, 1, 0, CONTROL);
+		TABLE[ConditionalBlock.NOT_IF_OPCODE] = new Opcode(ConditionalBlock.NOT_IF_OPCODE, Kind.NOT_IF, "NOTIF", null, 0, 1, 0, CONTROL);
+		TABLE[ConditionalBlock.ELSE_OPCODE] = new Opcode(ConditionalBlock.ELSE_OPCODE, Kind.ELSE, "ELSE", null, 0, 0, 0, CONTROL);
+		TABLE[ConditionalBlock.ENDIF_OPCODE] = new Opcode(ConditionalBlock.ENDIF_OPCODE, Kind.ENDIF, "ENDIF", null, 0, 0, 0, CONTROL);
+		for (OrdinaryInstruction instruction : OrdinaryInstruction.values()) {
+			Opcode opcode = ordinary(instruction);
+			TABLE[Byte.toUnsignedInt(opcode.value)] = opcode;
+			ORDINARY[instruction.ordinal()] = opcode;
+		}
+	}
+
+	public static Opcode of(byte value) {
+		return TABLE[Byte.toUnsignedInt(value)];
+	}
+
+	public static Opcode of(OrdinaryInstruction instruction) {
+		return ORDINARY[instruction.ordinal()];
+	}
+
+	private static Opcode ordinary(OrdinaryInstruction instruction) {
+		return switch (instruction) {
+			case PUSH_1, PUSH_NEGATIVE_1, GET_STACK_DEPTH -> ordinary(instruction, 0, 1, STACK);
+			case NO_OPERATION, RETURN_FAIL -> ordinary(instruction, 0, 0, CONTROL);
+			case VERIFY -> ordinary(instruction, 1, 0, CONTROL);
+			case DUPLICATE_CONDITIONAL -> ordinary(instruction, 1, VARIABLE, STACK);
+			case DROP_ITEM -> ordinary(instruction, 1, 0, STACK);
+			case DUPLICATE_ITEM, GET_ITEM_SIZE -> ordinary(instruction, 1, 2, STACK);
+			case REMOVE_SECOND -> ordinary(instruction, 2, 1, STACK);
+			case COPY_SECOND, TUCK -> ordinary(instruction, 2, 3, STACK);
+			case COPY_ITEM, ROLL_ITEM -> ordinary(instruction, VARIABLE, VARIABLE, STACK);
+			case ROTATE_THREE -> ordinary(instruction, 3, 3, STACK);
+			case SWAP_TWO -> ordinary(instruction, 2, 2, STACK);
+			case DROP_TWO -> ordinary(instruction, 2, 0, STACK);
+			case DUPLICATE_TWO -> ordinary(instruction, 2, 4, STACK);
+			case DUPLICATE_THREE -> ordinary(instruction, 3, 6, STACK);
+			case COPY_SECOND_PAIR -> ordinary(instruction, 4, 6, STACK);
+			case ROTATE_THREE_PAIRS -> ordinary(instruction, 6, 6, STACK);
+			case SWAP_TWO_PAIRS -> ordinary(instruction, 4, 4, STACK);
+			case BYTES_EQUAL -> ordinary(instruction, 2, 1, ARITHMETIC);
+			case VERIFY_BYTES_EQUAL -> ordinary(instruction, 2, 0, ARITHMETIC);
+			case ARITHMETIC_ADD_1, ARITHMETIC_SUB_1, ARITHMETIC_NEG, ARITHMETIC_ABS,
+				 ARITHMETIC_NOT, ARITHMETIC_0_NOT_EQUAL -> ordinary(instruction, 1, 1, ARITHMETIC);
+			// ARITHMETIC_NUM_EQUAL_VERIFY leaves its result on the stack when it passes
+			case ARITHMETIC_ADD, ARITHMETIC_SUB, ARITHMETIC_BOOL_AND, ARITHMETIC_BOOL_OR,
+				 ARITHMETIC_NUM_EQUAL, ARITHMETIC_NUM_EQUAL_VERIFY, ARITHMETIC_NUM_NOT_EQUAL,
+				 ARITHMETIC_LESS_THAN, ARITHMETIC_GREATER_THAN, ARITHMETIC_LESS_THAN_OR_EQUAL,
+				 ARITHMETIC_GREATER_THAN_OR_EQUAL, ARITHMETIC_MIN, ARITHMETIC_MAX -> ordinary(instruction, 2, 1, ARITHMETIC);
+			case ARITHMETIC_WITHIN -> ordinary(instruction, 3, 1, ARITHMETIC);
+			case HASH_SHA256, HASH_TWICE_SHA256 -> ordinary(instruction, 1, 1, HASH);
+			case SIGNATURE_CHECK -> ordinary(instruction, 2, 1, SIGNATURE);
+			case SIGNATURE_CHECK_VERIFY -> ordinary(instruction, 2, 0, SIGNATURE);
+			case SIGNATURE_CHECK_ADD -> ordinary(instruction, 3, 1, SIGNATURE);
+			case SIGNATURE_CHECK_MULTI -> ordinary(instruction, VARIABLE, 1, MULTI_SIGNATURE);
+			case SIGNATURE_CHECK_MULTI_VERIFY -> ordinary(instruction, VARIABLE, 0, MULTI_SIGNATURE);
+		};
+	}
+
+	private static Opcode ordinary(OrdinaryInstruction instruction, int pops, int pushes, CostClass costClass) {
+		byte value = (byte) (OrdinaryInstruction.FIRST_OPCODE + instruction.ordinal());
+		return new Opcode(value, Kind.ORDINARY, instruction.name(), instruction, 0, pops, pushes, costClass);
+	}
+}
@@ -1,29 +1,28 @@
 package currycoin.script.instructions;
 
+import currycoin.CryptoEngines;
 import currycoin.Hash;
 import currycoin.script.ByteArray;
 import currycoin.script.ScriptException;
 import currycoin.script.ScriptStack;
 
 import java.nio.ByteBuffer;
-import java.security.*;
-import java.security.interfaces.ECPublicKey;
-import java.security.spec.*;
-import java.util.ArrayDeque;
-import java.util.Deque;
-import java.util.stream.Stream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import static java.lang.Math.*;
 
 public enum OrdinaryInstruction implements Instruction {
 	PUSH_1 {
 		public void execute(ScriptStack stack) throws ScriptException {
-			stack.push(ByteArray.fromInt(-1));
+			stack.pushInt(-1);
 		}
 	},
 	PUSH_NEGATIVE_1 {
 		public void execute(ScriptStack stack) throws ScriptException {
-			stack.push(ByteArray.fromInt(-1));
+			stack.pushInt(-1);
 		}
 	},
 	NO_OPERATION {
@@ -31,7 +30,7 @@ public enum OrdinaryInstruction implements Instruction {
 	},
 	VERIFY {
 		public void execute(ScriptStack stack) throws ScriptException {
-			if (!stack.pop().asBoolean()) throw new ScriptException.VerificationException("VERIFY failed");
+			if (!stack.popBoolean()) throw new ScriptException.VerificationException("VERIFY failed");
 		}
 	},
 	RETURN_FAIL {
@@ -41,55 +40,51 @@ public enum OrdinaryInstruction implements Instruction {
 	},
 	DUPLICATE_CONDITIONAL {
 		public void execute(ScriptStack stack) throws ScriptException {
-			ByteArray value = stack.peek();
-			if (value.asBoolean()) stack.push(value);
+			if (stack.peekBoolean()) stack.copyToTop(0);
 		}
 	},
 	GET_STACK_DEPTH {
 		public void execute(ScriptStack stack) throws ScriptException {
-			stack.push(ByteArray.fromInt(stack.depth()));
+			stack.pushInt(stack.depth());
 		}
 	},
 	DROP_ITEM {
 		public void execute(ScriptStack stack) throws ScriptException {
-			stack.pop();
+			stack.drop();
 		}
 	},
 	DUPLICATE_ITEM {
 		public void execute(ScriptStack stack) throws ScriptException {
-			stack.push(stack.peek());
+			stack.copyToTop(0);
 		}
 	},
 	REMOVE_SECOND {
 		public void execute(ScriptStack stack) throws ScriptException {
 			ByteArray value = stack.pop();
-			stack.pop();
+			stack.drop();
 			stack.push(value);
 		}
 	},
 	COPY_SECOND {
 		public void execute(ScriptStack stack) throws ScriptException {
-			ByteArray top = stack.pop();
-			ByteArray second = stack.peek();
-			stack.push(top);
-			stack.push(second);
+			stack.copyToTop(1);
 		}
 	},
 	COPY_ITEM {
 		public void execute(ScriptStack stack) throws ScriptException {
-			int index = stack.pop().toInt(); // gets removed
-			var removed = Stream.generate(stack::pop).limit(index).toList();
+			int index = stack.popInt(); // gets removed
+			ByteArray[] removed = popAbove(stack, index);
 			ByteArray selected = stack.peek(); // keep the old one too
-			removed.forEach(stack::push);
+			for (ByteArray item : removed) stack.push(item);
 			stack.push(selected);
 		}
 	},
 	ROLL_ITEM {
 		public void execute(ScriptStack stack) throws ScriptException {
-			int index = stack.pop().toInt(); // gets removed
-			var removed = Stream.generate(stack::pop).limit(index).toList();
+			int index = stack.popInt(); // gets removed
+			ByteArray[] removed = popAbove(stack, index);
 			ByteArray selected = stack.pop(); // remove it
-			removed.forEach(stack::push);
+			for (ByteArray item : removed) stack.push(item);
 			stack.push(selected);
 		}
 	},
@@ -122,8 +117,8 @@ public enum OrdinaryInstruction implements Instruction {
 	},
 	DROP_TWO {
 		public void execute(ScriptStack stack) throws ScriptException {
-			stack.pop();
-			stack.pop();
+			stack.drop();
+			stack.drop();
 		}
 	},
 	DUPLICATE_TWO {
@@ -193,15 +188,14 @@ public enum OrdinaryInstruction implements Instruction {
 	},
 	GET_ITEM_SIZE {
 		public void execute(ScriptStack stack) throws ScriptException {
-			stack.push(ByteArray.fromInt(stack.peek().length()));
+			stack.pushInt(stack.peekLength());
 		}
 	},
 	BYTES_EQUAL {
 		public void execute(ScriptStack stack) throws ScriptException {
 			ByteArray first = stack.pop();
 			ByteArray second = stack.pop();
-			int result = first.equals(second) ? 1 : 0;
-			stack.push(ByteArray.fromInt(result));
+			stack.pushBoolean(first.equals(second));
 		}
 	},
 	VERIFY_BYTES_EQUAL {
@@ -213,170 +207,161 @@ public enum OrdinaryInstruction implements Instruction {
 	},
 	ARITHMETIC_ADD_1 {
 		public void execute(ScriptStack stack) throws ScriptException {
-			int val = stack.pop().toInt();
-			stack.push(ByteArray.fromInt(val + 1));
+			int val = stack.popInt();
+			stack.pushInt(val + 1);
 		}
 	},
 	ARITHMETIC_SUB_1 {
 		public void execute(ScriptStack stack) throws ScriptException {
-			int val = stack.pop().toInt();
-			stack.push(ByteArray.fromInt(val - 1));
+			int val = stack.popInt();
+			stack.pushInt(val - 1);
 		}
 	},
 	ARITHMETIC_NEG {
 		public void execute(ScriptStack stack) throws ScriptException {
-			int val = stack.pop().toInt();
-			stack.push(ByteArray.fromInt(-val));
+			int val = stack.popInt();
+			stack.pushInt(-val);
 		}
 	},
 	ARITHMETIC_ABS {
 		public void execute(ScriptStack stack) throws ScriptException {
-			int val = stack.pop().toInt();
-			stack.push(ByteArray.fromInt(abs(val)));
+			int val = stack.popInt();
+			stack.pushInt(abs(val));
 		}
 	},
 	ARITHMETIC_NOT {
 		public void execute(ScriptStack stack) throws ScriptException {
-			int val = stack.pop().toInt();
+			int val = stack.popInt();
 			boolean boolVal = (val == 0);
-			stack.push(ByteArray.fromInt(boolVal ? 1 : 0));
+			stack.pushBoolean(boolVal);
 		}
 	},
 	ARITHMETIC_0_NOT_EQUAL {
 		public void execute(ScriptStack stack) throws ScriptException {
-			int val = stack.pop().toInt();
+			int val = stack.popInt();
 			boolean boolVal = (val != 0);
-			stack.push(ByteArray.fromInt(boolVal ? 1 : 0));
+			stack.pushBoolean(boolVal);
 		}
 	},
 	ARITHMETIC_ADD {
 		public void execute(ScriptStack stack) throws ScriptException {
-			int first = stack.pop().toInt();
-			int second = stack.pop().toInt();
-			stack.push(ByteArray.fromInt(second + first));
+			int first = stack.popInt();
+			int second = stack.popInt();
+			stack.pushInt(second + first);
 		}
 	},
 	ARITHMETIC_SUB {
 		public void execute(ScriptStack stack) throws ScriptException {
-			int first = stack.pop().toInt();
-			int second = stack.pop().toInt();
-			stack.push(ByteArray.fromInt(second - first));
+			int first = stack.popInt();
+			int second = stack.popInt();
+			stack.pushInt(second - first);
 		}
 	},
 	ARITHMETIC_BOOL_AND {
 		public void execute(ScriptStack stack) throws ScriptException {
-			int first = stack.pop().toInt();
-			int second = stack.pop().toInt();
-			stack.push(ByteArray.fromInt((first != 0 && second != 0) ? 1 : 0));
+			int first = stack.popInt();
+			int second = stack.popInt();
+			stack.pushBoolean(first != 0 && second != 0);
 		}
 	},
 	ARITHMETIC_BOOL_OR {
 		public void execute(ScriptStack stack) throws ScriptException {
-			int first = stack.pop().toInt();
-			int second = stack.pop().toInt();
-			stack.push(ByteArray.fromInt((first != 0 || second != 0) ? 1 : 0));
+			int first = stack.popInt();
+			int second = stack.popInt();
+			stack.pushBoolean(first != 0 || second != 0);
 		}
 	},
 	ARITHMETIC_NUM_EQUAL {
 		public void execute(ScriptStack stack) throws ScriptException {
-			int first = stack.pop().toInt();
-			int second = stack.pop().toInt();
-			stack.push(ByteArray.fromInt((first == second) ? 1 : 0));
+			int first = stack.popInt();
+			int second = stack.popInt();
+			stack.pushBoolean(first == second);
 		}
 	},
 	ARITHMETIC_NUM_EQUAL_VERIFY {
 		public void execute(ScriptStack stack) throws ScriptException {
-			int first = stack.pop().toInt();
-			int second = stack.pop().toInt();
-			stack.push(ByteArray.fromInt((first == second) ? 1 : 0));
+			int first = stack.popInt();
+			int second = stack.popInt();
+			stack.pushBoolean(first == second);
 			if (first != second) throw new ScriptException.VerificationException("ARITHMETIC_NUMEQUALVERIFY failed");
 		}
 	},
 	ARITHMETIC_NUM_NOT_EQUAL {
 		public void execute(ScriptStack stack) throws ScriptException {
-			int first = stack.pop().toInt();
-			int second = stack.pop().toInt();
-			stack.push(ByteArray.fromInt((first != second) ? 1 : 0));
+			int first = stack.popInt();
+			int second = stack.popInt();
+			stack.pushBoolean(first != second);
 		}
 	},
 	ARITHMETIC_LESS_THAN {
 		public void execute(ScriptStack stack) throws ScriptException {
-			int first = stack.pop().toInt();
-			int second = stack.pop().toInt();
-			stack.push(ByteArray.fromInt((second < first) ? 1 : 0));
+			int first = stack.popInt();
+			int second = stack.popInt();
+			stack.pushBoolean(second < first);
 		}
 	},
 	ARITHMETIC_GREATER_THAN {
 		public void execute(ScriptStack stack) throws ScriptException {
-			int first = stack.pop().toInt();
-			int second = stack.pop().toInt();
-			stack.push(ByteArray.fromInt((second > first) ? 1 : 0));
+			int first = stack.popInt();
+			int second = stack.popInt();
+			stack.pushBoolean(second > first);
 		}
 	},
 	ARITHMETIC_LESS_THAN_OR_EQUAL {
 		public void execute(ScriptStack stack) throws ScriptException {
-			int first = stack.pop().toInt();
-			int second = stack.pop().toInt();
-			stack.push(ByteArray.fromInt((second <= first) ? 1 : 0));
+			int first = stack.popInt();
+			int second = stack.popInt();
+			stack.pushBoolean(second <= first);
 		}
 	},
 	ARITHMETIC_GREATER_THAN_OR_EQUAL {
 		public void execute(ScriptStack stack) throws ScriptException {
-			int first = stack.pop().toInt();
-			int second = stack.pop().toInt();
-			stack.push(ByteArray.fromInt((second >= first) ? 1 : 0));
+			int first = stack.popInt();
+			int second = stack.popInt();
+			stack.pushBoolean(second >= first);
 		}
 	},
 	ARITHMETIC_MIN {
 		public void execute(ScriptStack stack) throws ScriptException {
-			int first = stack.pop().toInt();
-			int second = stack.pop().toInt();
-			stack.push(ByteArray.fromInt(min(second, first)));
+			int first = stack.popInt();
+			int second = stack.popInt();
+			stack.pushInt(min(second, first));
 		}
 	},
 	ARITHMETIC_MAX {
 		public void execute(ScriptStack stack) throws ScriptException {
-			int first = stack.pop().toInt();
-			int second = stack.pop().toInt();
-			stack.push(ByteArray.fromInt(max(second, first)));
+			int first = stack.popInt();
+			int second = stack.popInt();
+			stack.pushInt(max(second, first));
 		}
 	},
 	ARITHMETIC_WITHIN {
 		public void execute(ScriptStack stack) throws ScriptException {
-			int max = stack.pop().toInt();
-			int min = stack.pop().toInt();
-			int value = stack.pop().toInt();
-			stack.push(ByteArray.fromInt((value >= min && value <= max) ? 1 : 0));
+			int max = stack.popInt();
+			int min = stack.popInt();
+			int value = stack.popInt();
+			stack.pushBoolean(value >= min && value <= max);
 		}
 	},
 	HASH_SHA256 {
 		public void execute(ScriptStack stack) throws ScriptException {
-			try {
-				ByteArray value = stack.pop();
+			ByteArray value = stack.pop();
 
-				MessageDigest digest = MessageDigest.getInstance("SHA-256");
-				value.addToDigest(digest);
+			MessageDigest digest = CryptoEngines.sha256();
+			value.addToDigest(digest);
 
-				stack.push(new ByteArray(digest.digest()));
-			} catch (NoSuchAlgorithmException e) {
-				throw new ScriptException.InvalidScriptException("SHA-256 not supported", e);
-			}
+			stack.push(new ByteArray(digest.digest()));
 		}
 	},
 	HASH_TWICE_SHA256 {
 		public void execute(ScriptStack stack) throws ScriptException {
-			try {
-				ByteArray value = stack.pop();
+			ByteArray value = stack.pop();
 
-				MessageDigest digest = MessageDigest.getInstance("SHA-256");
-				value.addToDigest(digest);
-				MessageDigest digest2 = MessageDigest.getInstance("SHA-256");
-				digest2.update(digest.digest());
+			MessageDigest digest = CryptoEngines.sha256();
+			value.addToDigest(digest);
+			digest.update(digest.digest()); // digest() resets, so the engine can hash its own output
 
-				stack.push(new ByteArray(digest2.digest()));
-			} catch (NoSuchAlgorithmException e) {
-				throw new ScriptException.InvalidScriptException("SHA-256 not supported", e);
-			}
+			stack.push(new ByteArray(digest.digest()));
 		}
 	},
 	SIGNATURE_CHECK {
@@ -385,8 +370,9 @@ public enum OrdinaryInstruction implements Instruction {
 			ByteArray signature = stack.pop();
 			Hash hash = stack.dataToSign();
 
-			boolean verified = checkSignature(signature, publicKey, hash);
-			stack.push(ByteArray.fromInt(verified ? 1 : 0));
+			stack.budget().chargeSignatureOperations(1);
+			boolean verified = stack.signatureVerifier().check(signature, publicKey, hash);
+			stack.pushBoolean(verified);
         }
 	},
 	SIGNATURE_CHECK_VERIFY {
@@ -395,94 +381,106 @@ public enum OrdinaryInstruction implements Instruction {
 			ByteArray signature = stack.pop();
 			Hash hash = stack.dataToSign();
 
-			boolean verified = checkSignature(signature, publicKey, hash);
-			if (!verified)
-				throw new ScriptException.VerificationException("Signature does not match!!!!!");
+			stack.budget().chargeSignatureOperations(1);
+			stack.signatureVerifier().checkVerify(signature, publicKey, hash);
 		}
 	},
 	SIGNATURE_CHECK_ADD {
 		public void execute(ScriptStack stack) throws ScriptException {
-			int n = stack.pop().toInt();
+			int n = stack.popInt();
 
 			ByteArray publicKey = stack.pop();
 			ByteArray signature = stack.pop();
 			Hash hash = stack.dataToSign();
 
-			boolean verified = checkSignature(signature, publicKey, hash);
-			stack.push(ByteArray.fromInt(verified ? n + 1 : n));
+			stack.budget().chargeSignatureOperations(1);
+			boolean verified = stack.signatureVerifier().check(signature, publicKey, hash);
+			stack.pushInt(verified ? n + 1 : n);
 		}
 	},
 	SIGNATURE_CHECK_MULTI {
 		public void execute(ScriptStack stack) throws ScriptException {
 			Hash hash = stack.dataToSign();
 
-			int n = stack.pop().toInt();
-			Deque<ByteArray> publicKeys = new ArrayDeque<>(n);
+			int n = stack.popInt();
+			stack.budget().chargeSignatureOperations(max(n, 0)); // every key is tried at most once
+			List<ByteArray> publicKeys = new ArrayList<>();
 			for (int i = 0; i < n; i++) {
-				publicKeys.push(stack.pop());
+				publicKeys.add(stack.pop());
 			}
+			Collections.reverse(publicKeys); // the deepest key is tried first
 
-			int m = stack.pop().toInt();
-			boolean verified = true;
-			for (int i = 0; i < m; i++) {
-				ByteArray signature = stack.pop();
-
-				if (!hasSignatureMatch(signature, publicKeys, hash)) {
-					verified = false;
-					break;
-				}
-			}
+			int m = stack.popInt();
+			boolean verified = popMatchingSignatures(stack, m, publicKeys, hash);
 
-			stack.push(ByteArray.fromInt(verified ? 1 : 0));
+			stack.pushBoolean(verified);
 		}
 	},
 	SIGNATURE_CHECK_MULTI_VERIFY {
 		public void execute(ScriptStack stack) throws ScriptException {
 			Hash hash = stack.dataToSign();
 
-			int n = stack.pop().toInt();
-			Deque<ByteArray> publicKeys = new ArrayDeque<>(n);
+			int n = stack.popInt();
+			stack.budget().chargeSignatureOperations(max(n, 0));
+			List<ByteArray> publicKeys = new ArrayList<>();
 			for (int i = 0; i < n; i++) {
-				publicKeys.offerLast(stack.pop());
+				publicKeys.add(stack.pop());
 			}
 
-			int m = stack.pop().toInt();
-			for (int i = 0; i < m; i++) {
-				ByteArray signature = stack.pop();
-
-				if (!hasSignatureMatch(signature, publicKeys, hash)) {
-					throw new ScriptException.VerificationException("Multi-signature verification failed");
+			int m = stack.popInt();
+			if (m > 0 && m <= stack.depth()) {
+				// passing takes all m signatures to match, so they can be popped up front, which
+				// lets the verifier defer the check
+				List<ByteArray> signatures = new ArrayList<>(m);
+				for (int i = 0; i < m; i++) {
+					signatures.add(stack.pop());
 				}
+				stack.signatureVerifier().checkMultiVerify(signatures, publicKeys, hash);
+			} else if (!popMatchingSignatures(stack, m, publicKeys, hash)) {
+				throw new ScriptException.VerificationException("Multi-signature verification failed");
 			}
 		}
 	},
 	;
 
-	private static boolean checkSignature(ByteArray signature, ByteArray publicKey, Hash hash) throws ScriptException {
-		try {
-			KeyFactory keyFactoryEC = KeyFactory.getInstance("EC");
-			ECPublicKey ecPublicKey = (ECPublicKey) keyFactoryEC.generatePublic(new X509EncodedKeySpec(publicKey.data()));
-
-			Signature sig = Signature.getInstance("SHA256withECDSA");
-			sig.initVerify(ecPublicKey);
-			sig.update(hash.data());
+	/**
+	 * Pops the items above the given depth, top first, checking up front that the item at that
+	 * depth exists.
+	 */
+	private static ByteArray[] popAbove(ScriptStack stack, int depth) throws ScriptException.StackUnderflowException {
+		if (depth < 0 || depth >= stack.depth()) {
+			throw new ScriptException.StackUnderflowException("Nothing to peek at depth " + depth);
+		}
 
-			return sig.verify(signature.data());
-		} catch (NoSuchAlgorithmException | InvalidKeyException e) {
-			throw new ScriptException.InvalidScriptException("EC not supported", e);
-		} catch (InvalidKeySpecException | SignatureException e) {
-			return false; // this is a mal-formatted signature, not a system failure
+		ByteArray[] removed = new ByteArray[depth];
+		for (int i = 0; i < depth; i++) {
+			removed[i] = stack.pop();
 		}
+		return removed;
 	}
 
-	private static boolean hasSignatureMatch(ByteArray signature, Deque<ByteArray> publicKeys, Hash hash) throws ScriptException {
-		while (!publicKeys.isEmpty()) {
-			ByteArray publicKey = publicKeys.pop();
-			if (checkSignature(signature, publicKey, hash)) {
-				return true;
-			}
+	/**
+	 * Matches the top m items of the stack, top first, against the public keys in order. Pops every
+	 * signature up to and including the first one without a match, and nothing beyond it.
+	 */
+	private static boolean popMatchingSignatures(ScriptStack stack, int m, List<ByteArray> publicKeys, Hash hash) throws ScriptException {
+		int available = min(max(m, 0), stack.depth());
+		List<ByteArray> signatures = new ArrayList<>(available);
+		for (int i = 0; i < available; i++) {
+			signatures.add(stack.peek(i));
+		}
+
+		int matched = stack.signatureVerifier().checkMulti(signatures, publicKeys, hash);
+		for (int i = 0; i < min(matched + 1, available); i++) {
+			stack.drop();
+		}
+
+		if (matched < available) {
+			return false;
+		} else if (available < m) {
+			stack.drop(); // the next signature is missing
 		}
-		return false;
+		return true;
 	}
 
 	public static final byte FIRST_OPCODE = ConditionalBlock.ENDIF_OPCODE + 1;
@@ -490,13 +488,20 @@ public enum OrdinaryInstruction implements Instruction {
 	@Override
 	public abstract void execute(ScriptStack stack) throws ScriptException;
 
+	/**
+	 * The opcode of this instruction, with its metadata.
+	 */
+	public Opcode opcode() {
+		return Opcode.of(this);
+	}
+
 	@Override
 	public int byteSize() {
-		return 1;
+		return 1 + opcode().operandLength();
 	}
 
 	@Override
 	public void apply(ByteBuffer buffer) {
-		buffer.put((byte) (FIRST_OPCODE + ordinal()));
+		buffer.put(opcode().value());
 	}
 }
\ No newline at end of file
@@ -0,0 +1,217 @@
+package currycoin.script.instructions;
+
+import currycoin.script.ByteArray;
+import currycoin.script.Script;
+import currycoin.script.ScriptException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/// Parses an encoded script that may arrive in pieces, such as off a socket.
+///
+/// Bytes are handed over with {@link #feed} in chunks of any size, split anywhere, even in the
+/// middle of pushed data, and are validated as they come in. {@link #finish} then takes the end
+/// of the script. Open blocks are kept on an explicit stack instead of the call stack, so
+/// nesting costs no recursion; it is still limited to {@value #MAX_DEPTH} levels.
+///
+/// Whether an ENDIF closes a block or is followed by its ELSE part is only known from the next
+/// byte, so a block can be held back until that byte or the end of the script arrives.
+///
+/// A parser parses a single script and is not thread-safe.
+public final class ScriptParser {
+	public static final int MAX_DEPTH = 20;
+
+	private final List<Instruction> instructions = new ArrayList<>();
+	private final Deque<Block> blocks = new ArrayDeque<>();
+	private Block ended; // a block whose ENDIF may still be followed by an ELSE
+	private byte[] load; // pushed data that is still coming in
+	private int loaded;
+	private boolean finished;
+
+	/**
+	 * Parses the whole script in one pass. Pushed data refers into {@code encoded} instead of
+	 * being copied.
+	 */
+	public static Script parse(ByteArray encoded) throws ScriptException.InvalidScriptException {
+		ScriptParser parser = new ScriptParser();
+		parser.consume(encoded.asReadOnlyBuffer(), encoded, false);
+		return parser.finish();
+	}
+
+	/**
+	 * Reads a script of the given encoded length from the channel, parsing every read as soon as
+	 * it arrives. Exactly {@code length} bytes are read.
+	 * <p>
+	 * The channel must be in blocking mode: a non-blocking one with nothing to read would be
+	 * polled in a busy loop until something arrives.
+	 *
+	 * @throws EOFException if the channel ends before the script does
+	 * @throws ScriptException.InvalidScriptException if the length is negative
+	 */
+	public static Script read(ReadableByteChannel channel, int length) throws IOException {
+		if (length < 0) {
+			throw new ScriptException.InvalidScriptException("Negative script length: " + length);
+		}
+
+		ScriptParser parser = new ScriptParser();
+		ByteBuffer buffer = ByteBuffer.allocate(Math.min(length, 8192));
+		for (int remaining = length; remaining > 0; ) {
+			buffer.clear().limit(Math.min(buffer.capacity(), remaining));
+			if (channel.read(buffer) < 0) {
+				throw new EOFException("Channel ended " + remaining + " bytes before the end of the script");
+			}
+			remaining -= buffer.position();
+			parser.feed(buffer.flip());
+		}
+		return parser.finish();
+	}
+
+	/**
+	 * Parses a single instruction, as for {@link Instruction#parseFrom(ByteBuffer, ByteArray)}.
+	 * The buffer is left right after it.
+	 */
+	static Instruction parseInstruction(ByteBuffer buffer, ByteArray source) throws ScriptException.InvalidScriptException {
+		if (!buffer.hasRemaining()) {
+			throw new ScriptException.InvalidScriptException("Unexpected end of script");
+		}
+
+		ScriptParser parser = new ScriptParser();
+		parser.consume(buffer, source, true);
+		return parser.finish().instructions().getFirst();
+	}
+
+	/**
+	 * Parses the remaining bytes of the chunk, which are all consumed. Pushed data is copied, so
+	 * the chunk may be reused once this returns.
+	 */
+	public void feed(ByteBuffer chunk) throws ScriptException.InvalidScriptException {
+		consume(chunk, null, false);
+	}
+
+	/**
+	 * Ends the script, returning it.
+	 *
+	 * @throws ScriptException.InvalidScriptException if the script ended in the middle of an instruction
+	 */
+	public Script finish() throws ScriptException.InvalidScriptException {
+		checkNotFinished();
+		finished = true;
+		if (ended != null) {
+			add(ended.toInstruction());
+			ended = null;
+		}
+		if (load != null || !blocks.isEmpty()) {
+			throw new ScriptException.InvalidScriptException("Unexpected end of script");
+		}
+		return new Script(instructions);
+	}
+
+	private void consume(ByteBuffer buffer, ByteArray source, boolean single) throws ScriptException.InvalidScriptException {
+		checkNotFinished();
+		while (buffer.hasRemaining() && !(single && !instructions.isEmpty())) {
+			if (load != null) {
+				int count = Math.min(buffer.remaining(), load.length - loaded);
+				buffer.get(load, loaded, count);
+				loaded += count;
+				if (loaded == load.length) {
+					add(new LoadInstruction((byte) load.length, new ByteArray(load)));
+					load = null;
+				}
+			} else if (ended != null) {
+				if (buffer.get(buffer.position()) == ConditionalBlock.ELSE_OPCODE) {
+					buffer.get();
+					ended.inElse = true;
+					blocks.push(ended);
+				} else {
+					add(ended.toInstruction());
+				}
+				ended = null;
+			} else {
+				parseOpcode(buffer, source);
+			}
+		}
+	}
+
+	private void parseOpcode(ByteBuffer buffer, ByteArray source) throws ScriptException.InvalidScriptException {
+		if (blocks.size() > MAX_DEPTH) {
+			throw new ScriptException.InvalidScriptException("Maximum parsing stack depth exceeded!");
+		}
+
+		Opcode opcode = Opcode.of(buffer.get());
+		switch (opcode.kind()) {
+			case LOAD -> {
+				int length = opcode.operandLength();
+				if (buffer.remaining() >= length) {
+					ByteArray data;
+					if (source == null) {
+						data = ByteArray.copyOf(buffer, length);
+					} else {
+						data = source.slice(buffer.position(), length);
+						buffer.position(buffer.position() + length);
+					}
+					add(new LoadInstruction(opcode.value(), data));
+				} else {
+					load = new byte[length];
+					loaded = 0;
+				}
+			}
+			case IF -> blocks.push(new Block(false));
+			case NOT_IF -> blocks.push(new Block(true));
+			case ELSE -> throw new ScriptException.InvalidScriptException("Unexpected ELSE opcode");
+			case ENDIF -> {
+				if (blocks.isEmpty()) {
+					throw new ScriptException.InvalidScriptException("Unexpected ENDIF opcode");
+				}
+
+				Block block = blocks.pop();
+				if (block.inElse) {
+					add(block.toInstruction());
+				} else {
+					ended = block;
+				}
+			}
+			case ORDINARY -> add(opcode.instruction());
+			case INVALID -> throw new ScriptException.InvalidScriptException("Invalid opcode: " + opcode.value());
+		}
+	}
+
+	private void add(Instruction instruction) {
+		Block block = blocks.peek();
+		if (block == null) {
+			instructions.add(instruction);
+		} else if (block.inElse) {
+			block.elsePart.add(instruction);
+		} else {
+			block.firstPart.add(instruction);
+		}
+	}
+
+	private void checkNotFinished() {
+		if (finished) {
+			throw new IllegalStateException("Script already finished");
+		}
+	}
+
+	/// An IF or NOTIF block being parsed. The first part runs when the condition matches the
+	/// opcode, the ELSE part when it does not.
+	private static final class Block {
+		final boolean notIf;
+		final List<Instruction> firstPart = new ArrayList<>();
+		final List<Instruction> elsePart = new ArrayList<>();
+		boolean inElse;
+
+		Block(boolean notIf) {
+			this.notIf = notIf;
+		}
+
+		ConditionalBlock toInstruction() {
+			return notIf ? new ConditionalBlock(elsePart, firstPart) : new ConditionalBlock(firstPart, elsePart);
+		}
+	}
+}
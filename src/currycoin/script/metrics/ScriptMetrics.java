@@ -0,0 +1,198 @@
+package currycoin.script.metrics;
+
+import currycoin.script.ScriptException;
+import currycoin.script.ScriptStack;
+import currycoin.script.instructions.ConditionalBlock;
+import currycoin.script.instructions.Instruction;
+import currycoin.script.instructions.LoadInstruction;
+import currycoin.script.instructions.OrdinaryInstruction;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/// Per-opcode execution counts and latencies, and script outcomes.
+///
+/// Collection is off unless the JVM is started with `-Dcurrycoin.scriptMetrics=true`. The
+/// interpreters only call in here behind a check of the constant {@link #ENABLED}, which the JIT
+/// folds away, so leaving the calls compiled in costs nothing when it is off. When on, the
+/// metrics are published through the platform MBean server from the first script execution on.
+///
+/// All counters are {@link LongAdder}s, so threads validating in parallel don't contend on them.
+public final class ScriptMetrics implements ScriptMetricsMXBean {
+	public static final boolean ENABLED = Boolean.getBoolean("currycoin.scriptMetrics");
+	public static final String OBJECT_NAME = "currycoin:type=ScriptMetrics";
+
+	private static final int BUCKETS = 40; // the last one holds everything from 2^38 ns, about 4.6 minutes
+
+	private static final OrdinaryInstruction[] ORDINARY = OrdinaryInstruction.values();
+	private static final Opcode[] OPCODES = new Opcode[ORDINARY.length];
+	private static final Opcode LOAD = new Opcode("LOAD");
+	private static final Opcode CONDITIONAL = new Opcode("CONDITIONAL");
+	private static final LongAdder PASSED = new LongAdder();
+	private static final LongAdder FAILED = new LongAdder();
+
+	private static final ScriptMetrics INSTANCE = new ScriptMetrics();
+
+	static {
+		for (OrdinaryInstruction instruction : ORDINARY) {
+			OPCODES[instruction.ordinal()] = new Opcode(instruction.name());
+		}
+
+		if (ENABLED) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+			} catch (JMException e) {
+				throw new IllegalStateException("Could not register script metrics", e);
+			}
+		}
+	}
+
+	private ScriptMetrics() { }
+
+	/// The collected metrics, also reachable through JMX when enabled.
+	public static ScriptMetricsMXBean get() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Executes the instruction, counting it, and timing it if it is an ordinary opcode.
+	 * Conditional blocks are counted, while their contents are executed and counted as usual.
+	 */
+	public static void execute(Instruction instruction, ScriptStack stack) throws ScriptException {
+		switch (instruction) {
+			case OrdinaryInstruction ordinary -> execute(ordinary, stack);
+			case LoadInstruction load -> {
+				LOAD.invocations.increment();
+				load.execute(stack);
+			}
+			case ConditionalBlock block -> {
+				CONDITIONAL.invocations.increment();
+				block.execute(stack);
+			}
+		}
+	}
+
+	public static void execute(OrdinaryInstruction instruction, ScriptStack stack) throws ScriptException {
+		long start = System.nanoTime();
+		try {
+			instruction.execute(stack);
+		} finally {
+			OPCODES[instruction.ordinal()].record(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Counts a load of a compiled script, which is not timed.
+	 */
+	public static void countLoad() {
+		LOAD.invocations.increment();
+	}
+
+	/**
+	 * Counts a conditional jump of a compiled script, which stands for a conditional block.
+	 */
+	public static void countConditional() {
+		CONDITIONAL.invocations.increment();
+	}
+
+	/**
+	 * Counts whether a script, or the scripts of an input, ran to completion.
+	 */
+	public static void recordScript(boolean passed) {
+		(passed ? PASSED : FAILED).increment();
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return ENABLED;
+	}
+
+	@Override
+	public long getScriptsPassed() {
+		return PASSED.sum();
+	}
+
+	@Override
+	public long getScriptsFailed() {
+		return FAILED.sum();
+	}
+
+	@Override
+	public Map<String, Long> getInvocations() {
+		return collect(opcode -> opcode.invocations.sum(), true);
+	}
+
+	@Override
+	public Map<String, Long> getTotalNanos() {
+		return collect(opcode -> opcode.totalNanos.sum(), false);
+	}
+
+	@Override
+	public Map<String, long[]> getLatencyHistograms() {
+		return collect(Opcode::histogram, false);
+	}
+
+	@Override
+	public void reset() {
+		for (Opcode opcode : OPCODES) {
+			opcode.reset();
+		}
+		LOAD.reset();
+		CONDITIONAL.reset();
+		PASSED.reset();
+		FAILED.reset();
+	}
+
+	private static <T> Map<String, T> collect(Function<Opcode, T> metric, boolean includeUntimed) {
+		Map<String, T> result = new LinkedHashMap<>();
+		for (Opcode opcode : OPCODES) {
+			result.put(opcode.name, metric.apply(opcode));
+		}
+		if (includeUntimed) {
+			result.put(LOAD.name, metric.apply(LOAD));
+			result.put(CONDITIONAL.name, metric.apply(CONDITIONAL));
+		}
+		return result;
+	}
+
+	private static final class Opcode {
+		final String name;
+		final LongAdder invocations = new LongAdder();
+		final LongAdder totalNanos = new LongAdder();
+		final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+		Opcode(String name) {
+			this.name = name;
+			for (int i = 0; i < BUCKETS; i++) {
+				buckets[i] = new LongAdder();
+			}
+		}
+
+		void record(long nanos) {
+			invocations.increment();
+			totalNanos.add(nanos);
+			buckets[Math.min(64 - Long.numberOfLeadingZeros(Math.max(nanos, 0)), BUCKETS - 1)].increment();
+		}
+
+		long[] histogram() {
+			long[] histogram = new long[BUCKETS];
+			for (int i = 0; i < BUCKETS; i++) {
+				histogram[i] = buckets[i].sum();
+			}
+			return histogram;
+		}
+
+		void reset() {
+			invocations.reset();
+			totalNanos.reset();
+			for (LongAdder bucket : buckets) {
+				bucket.reset();
+			}
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package currycoin.script.metrics;
+
+import java.util.Map;
+
+/// The management interface of {@link ScriptMetrics}, registered as `currycoin:type=ScriptMetrics`.
+///
+/// Maps are keyed by opcode name, with `LOAD` and `CONDITIONAL` standing for load instructions
+/// and conditional blocks. Latencies are only measured for ordinary opcodes.
+public interface ScriptMetricsMXBean {
+	boolean isEnabled();
+
+	long getScriptsPassed();
+
+	long getScriptsFailed();
+
+	Map<String, Long> getInvocations();
+
+	Map<String, Long> getTotalNanos();
+
+	/**
+	 * Latency histograms, where bucket {@code i} counts executions that took less than
+	 * {@code 2^i} but at least {@code 2^(i-1)} nanoseconds, the last bucket counting everything
+	 * slower.
+	 */
+	Map<String, long[]> getLatencyHistograms();
+
+	void reset();
+}
@@ -0,0 +1,146 @@
+package currycoin.script.template;
+
+import currycoin.CryptoEngines;
+import currycoin.Hash;
+import currycoin.script.ByteArray;
+import currycoin.script.ExecutionLimits;
+import currycoin.script.Script;
+import currycoin.script.ScriptException;
+import currycoin.script.SignatureVerifier;
+import currycoin.script.instructions.Instruction;
+import currycoin.script.instructions.LoadInstruction;
+import currycoin.script.instructions.OrdinaryInstruction;
+
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Optional;
+
+import static currycoin.script.instructions.OrdinaryInstruction.*;
+
+/// A locking and unlocking script pair of a well-known shape, which can be run by dedicated code
+/// instead of the interpreter.
+///
+/// The scripts of an input run one after the other on the same stack, so a template describes
+/// the instructions of both together, however they are split between the two. Running a
+/// template pulls the operands straight out of the loads and never builds a stack, but has the
+/// same outcome as interpreting the scripts, including failing when they would exceed their
+/// {@link ExecutionLimits}.
+public sealed interface ScriptTemplate {
+	/**
+	 * Runs the scripts, returning whether they pass.
+	 */
+	boolean run(Hash dataToSign, SignatureVerifier signatureVerifier, ExecutionLimits limits) throws ScriptException;
+
+	/**
+	 * Classifies the scripts, which only looks at a handful of instructions.
+	 */
+	static Optional<ScriptTemplate> recognize(Script lockingScript, Script unlockingScript) {
+		Instructions instructions = new Instructions(lockingScript.instructions(), unlockingScript.instructions());
+		return Optional.ofNullable(switch (instructions.size()) {
+			case 3 -> PayToPublicKey.recognize(instructions);
+			case 4 -> HashLock.recognize(instructions);
+			case 7 -> PayToPublicKeyHash.recognize(instructions);
+			default -> null;
+		});
+	}
+
+	/// `<signature> <public key> SIGNATURE_CHECK_VERIFY`
+	record PayToPublicKey(ByteArray signature, ByteArray publicKey) implements ScriptTemplate {
+		static PayToPublicKey recognize(Instructions instructions) {
+			if (instructions.get(0) instanceof LoadInstruction signature
+					&& instructions.get(1) instanceof LoadInstruction publicKey
+					&& instructions.get(2) == SIGNATURE_CHECK_VERIFY) {
+				return new PayToPublicKey(signature.data(), publicKey.data());
+			}
+			return null;
+		}
+
+		@Override
+		public boolean run(Hash dataToSign, SignatureVerifier signatureVerifier, ExecutionLimits limits) throws ScriptException {
+			long bytes = (long) signature.length() + publicKey.length();
+			if (!fits(limits, 3, 1, 2, bytes)) {
+				return false;
+			}
+
+			signatureVerifier.checkVerify(signature, publicKey, dataToSign);
+			return true;
+		}
+	}
+
+	/// `<signature> <public key> DUPLICATE_ITEM HASH_SHA256 <public key hash> VERIFY_BYTES_EQUAL SIGNATURE_CHECK_VERIFY`
+	record PayToPublicKeyHash(ByteArray signature, ByteArray publicKey, ByteArray publicKeyHash) implements ScriptTemplate {
+		static PayToPublicKeyHash recognize(Instructions instructions) {
+			if (instructions.get(0) instanceof LoadInstruction signature
+					&& instructions.get(1) instanceof LoadInstruction publicKey
+					&& instructions.get(2) == DUPLICATE_ITEM
+					&& instructions.get(3) == HASH_SHA256
+					&& instructions.get(4) instanceof LoadInstruction publicKeyHash
+					&& instructions.get(5) == VERIFY_BYTES_EQUAL
+					&& instructions.get(6) == SIGNATURE_CHECK_VERIFY) {
+				return new PayToPublicKeyHash(signature.data(), publicKey.data(), publicKeyHash.data());
+			}
+			return null;
+		}
+
+		@Override
+		public boolean run(Hash dataToSign, SignatureVerifier signatureVerifier, ExecutionLimits limits) throws ScriptException {
+			// the stack peaks at the duplicated key, or at the two hashes to compare
+			long keys = (long) signature.length() + publicKey.length();
+			long bytes = Math.max(keys + publicKey.length(), keys + Hash.BYTES + publicKeyHash.length());
+			if (!fits(limits, 7, 1, 4, bytes) || !publicKeyHash.equals(sha256(publicKey, false))) {
+				return false;
+			}
+
+			signatureVerifier.checkVerify(signature, publicKey, dataToSign);
+			return true;
+		}
+	}
+
+	/// `<preimage> HASH_SHA256 <hash> VERIFY_BYTES_EQUAL`, or the same with `HASH_TWICE_SHA256`
+	record HashLock(ByteArray preimage, ByteArray hash, boolean twice) implements ScriptTemplate {
+		static HashLock recognize(Instructions instructions) {
+			if (instructions.get(0) instanceof LoadInstruction preimage
+					&& instructions.get(1) instanceof OrdinaryInstruction hashing
+					&& (hashing == HASH_SHA256 || hashing == HASH_TWICE_SHA256)
+					&& instructions.get(2) instanceof LoadInstruction hash
+					&& instructions.get(3) == VERIFY_BYTES_EQUAL) {
+				return new HashLock(preimage.data(), hash.data(), hashing == HASH_TWICE_SHA256);
+			}
+			return null;
+		}
+
+		@Override
+		public boolean run(Hash dataToSign, SignatureVerifier signatureVerifier, ExecutionLimits limits) {
+			long bytes = Math.max(preimage.length(), Hash.BYTES + hash.length());
+			return fits(limits, 4, 0, 2, bytes)
+					&& hash.equals(sha256(preimage, twice));
+		}
+	}
+
+	private static boolean fits(ExecutionLimits limits, int instructions, int signatureOperations, int stackDepth, long stackBytes) {
+		return instructions <= limits.maxInstructions()
+				&& signatureOperations <= limits.maxSignatureOperations()
+				&& stackDepth <= limits.maxStackDepth()
+				&& stackBytes <= limits.maxStackBytes();
+	}
+
+	private static ByteArray sha256(ByteArray data, boolean twice) {
+		MessageDigest digest = CryptoEngines.sha256();
+		data.addToDigest(digest);
+		if (twice) {
+			digest.update(digest.digest());
+		}
+		return new ByteArray(digest.digest());
+	}
+
+	/// The instructions of two scripts as one sequence, without copying them.
+	record Instructions(List<Instruction> first, List<Instruction> second) {
+		int size() {
+			return first.size() + second.size();
+		}
+
+		Instruction get(int index) {
+			return index < first.size() ? first.get(index) : second.get(index - first.size());
+		}
+	}
+}
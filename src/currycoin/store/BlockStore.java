@@ -0,0 +1,290 @@
+package currycoin.store;
+
+import currycoin.BlockHeader;
+import currycoin.Hash;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/// An append-only store of blocks, spread over segment files of a directory.
+///
+/// A block is stored as its header in the {@link BlockHeader#apply} encoding, followed by the
+/// length of its body and the body itself. Blocks are only ever written through a FileChannel,
+/// and every segment is memory-mapped once for reading, so a block read returns views into the
+/// mapping that can be parsed in place.
+///
+/// Next to the segments, `index.dat` logs the hash, segment and offset of every block. Replaying
+/// it is all that opening the store takes, however many blocks there are. The log entry of a
+/// block is written after the block, so a block only becomes visible once it is complete; bytes
+/// of a block whose entry never made it to the log are overwritten by the next append. Opening
+/// fails if the index refers to a segment that is missing or cut short, or skips one.
+///
+/// Reads may run concurrently with each other and with appends.
+public final class BlockStore implements Closeable {
+	public static final long DEFAULT_SEGMENT_SIZE = 128L << 20;
+
+	private static final String INDEX_FILE = "index.dat";
+
+	// index entry: 32 byte block hash, int segment, long offset, int length
+	private static final int ENTRY_SIZE = Hash.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+	private final Path directory;
+	private final long segmentSize;
+	private final FileChannel index;
+	private final Map<Hash, Location> locations = new ConcurrentHashMap<>();
+	private final List<Segment> segments = new CopyOnWriteArrayList<>();
+	private Segment active; // guarded by this, like every write
+
+	private BlockStore(Path directory, long segmentSize, FileChannel index) {
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.index = index;
+	}
+
+	/**
+	 * Opens the store in the directory, creating an empty one if there is none.
+	 */
+	public static BlockStore open(Path directory) throws IOException {
+		return open(directory, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Opens the store, starting new segments once the current one would grow past the given size.
+	 * A block larger than that gets a segment of its own.
+	 */
+	public static BlockStore open(Path directory, long segmentSize) throws IOException {
+		if (segmentSize <= 0 || segmentSize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Segment size must be positive and below 2 GiB");
+		}
+
+		Files.createDirectories(directory);
+		FileChannel index = FileChannel.open(directory.resolve(INDEX_FILE),
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		BlockStore store = new BlockStore(directory, segmentSize, index);
+		try {
+			store.replayIndex();
+			return store;
+		} catch (IOException | RuntimeException e) {
+			store.close();
+			throw e;
+		}
+	}
+
+	private void replayIndex() throws IOException {
+		long entries = index.size() / ENTRY_SIZE;
+		index.truncate(entries * ENTRY_SIZE); // drops an entry torn by a crash
+
+		ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(entries, 4096) * ENTRY_SIZE);
+		long[] ends = new long[0];
+		for (long position = 0; position < entries * ENTRY_SIZE; ) {
+			buffer.clear();
+			buffer.limit((int) Math.min(buffer.capacity(), entries * ENTRY_SIZE - position));
+			readFully(index, buffer, position);
+			position += buffer.limit();
+			buffer.flip();
+
+			while (buffer.hasRemaining()) {
+				Hash hash = Hash.parseFrom(buffer);
+				Location location = new Location(buffer.getInt(), buffer.getLong(), buffer.getInt());
+				if (location.segment() < 0 || location.offset() < 0 || location.length() <= 0) {
+					throw new IOException("Corrupt block index entry for " + hash);
+				}
+
+				locations.put(hash, location);
+				if (location.segment() >= ends.length) {
+					ends = Arrays.copyOf(ends, location.segment() + 1);
+				}
+				ends[location.segment()] = Math.max(ends[location.segment()], location.offset() + location.length());
+			}
+		}
+
+		// every segment but a last one whose first block never made it to the log holds blocks
+		for (int i = 0; i < ends.length; i++) {
+			if (ends[i] == 0) {
+				throw new IOException("Block index has no blocks in segment " + i + " of " + ends.length);
+			}
+			segments.add(Segment.openExisting(segmentFile(i), i, ends[i], segmentSize));
+		}
+		if (!segments.isEmpty()) {
+			active = segments.getLast();
+		}
+	}
+
+	/**
+	 * Appends a block, returning the hash of its header.
+	 *
+	 * @throws IllegalArgumentException if the block is already stored
+	 */
+	public synchronized Hash append(BlockHeader header, ByteBuffer body) throws IOException {
+		Hash hash = header.hash();
+		if (locations.containsKey(hash)) {
+			throw new IllegalArgumentException("Block already stored: " + hash);
+		}
+
+		long length = (long) header.byteSize() + Integer.BYTES + body.remaining();
+		if (length > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Block too large: " + length + " bytes");
+		}
+		if (active == null || active.end + length > active.capacity) {
+			active = Segment.open(segmentFile(segments.size()), segments.size(), 0, Math.max(segmentSize, length));
+			segments.add(active);
+		}
+
+		ByteBuffer prefix = ByteBuffer.allocate(header.byteSize() + Integer.BYTES);
+		header.apply(prefix);
+		prefix.putInt(body.remaining());
+		prefix.flip();
+
+		long offset = active.end;
+		active.channel.position(offset);
+		ByteBuffer[] record = { prefix, body.duplicate() };
+		while (record[0].hasRemaining() || record[1].hasRemaining()) {
+			active.channel.write(record);
+		}
+
+		Location location = new Location(active.number, offset, (int) length);
+		ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+		hash.apply(entry);
+		entry.putInt(location.segment()).putLong(location.offset()).putInt(location.length());
+		entry.flip();
+		long entryPosition = index.size();
+		while (entry.hasRemaining()) {
+			index.write(entry, entryPosition + entry.position());
+		}
+
+		active.end = offset + length;
+		locations.put(hash, location);
+		return hash;
+	}
+
+	public boolean contains(Hash hash) {
+		return locations.containsKey(hash);
+	}
+
+	/**
+	 * The number of stored blocks.
+	 */
+	public int size() {
+		return locations.size();
+	}
+
+	/**
+	 * Reads a block. The body is a read-only view into the mapped segment.
+	 */
+	public Optional<StoredBlock> get(Hash hash) {
+		return Optional.ofNullable(locations.get(hash)).map(this::read);
+	}
+
+	public Optional<BlockHeader> header(Hash hash) {
+		return Optional.ofNullable(locations.get(hash)).map(location -> BlockHeader.parseFrom(view(location)));
+	}
+
+	private StoredBlock read(Location location) {
+		ByteBuffer record = view(location);
+		BlockHeader header = BlockHeader.parseFrom(record);
+		int bodyLength = record.getInt();
+		return new StoredBlock(header, record.slice(record.position(), bodyLength).asReadOnlyBuffer());
+	}
+
+	private ByteBuffer view(Location location) {
+		return segments.get(location.segment()).mapping.slice((int) location.offset(), location.length());
+	}
+
+	/**
+	 * Writes everything to the storage device, blocks before the index that refers to them.
+	 */
+	public synchronized void flush() throws IOException {
+		for (Segment segment : segments) {
+			segment.channel.force(false);
+		}
+		index.force(false);
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		IOException failure = null;
+		for (Segment segment : segments) {
+			try {
+				segment.channel.close();
+			} catch (IOException e) {
+				failure = e;
+			}
+		}
+		index.close();
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	private Path segmentFile(int number) {
+		return directory.resolve("blocks-%05d.dat".formatted(number));
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of " + channel);
+			}
+		}
+	}
+
+	/// Where a block is stored.
+	private record Location(int segment, long offset, int length) { }
+
+	/// One segment file. It is mapped read-only at its full capacity up front, which reserves
+	/// the space on disk, so the mapping never has to be replaced while blocks are appended.
+	private static final class Segment {
+		final int number;
+		final FileChannel channel;
+		final MappedByteBuffer mapping;
+		final long capacity;
+		long end; // guarded by the store
+
+		private Segment(int number, FileChannel channel, MappedByteBuffer mapping, long end) {
+			this.number = number;
+			this.channel = channel;
+			this.mapping = mapping;
+			this.capacity = mapping.capacity();
+			this.end = end;
+		}
+
+		static Segment open(Path file, int number, long end, long minimumCapacity) throws IOException {
+			return open(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE),
+					number, end, minimumCapacity);
+		}
+
+		/**
+		 * Opens a segment the index refers to, which must still hold all of its blocks.
+		 */
+		static Segment openExisting(Path file, int number, long end, long minimumCapacity) throws IOException {
+			FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			if (channel.size() < end) {
+				channel.close();
+				throw new IOException("Block segment " + file + " ends before its last block");
+			}
+			return open(channel, number, end, minimumCapacity);
+		}
+
+		private static Segment open(FileChannel channel, int number, long end, long minimumCapacity) throws IOException {
+			try {
+				long capacity = Math.max(channel.size(), minimumCapacity);
+				return new Segment(number, channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, capacity), end);
+			} catch (IOException | RuntimeException e) {
+				channel.close();
+				throw e;
+			}
+		}
+	}
+}
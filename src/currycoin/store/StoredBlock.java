@@ -0,0 +1,9 @@
+package currycoin.store;
+
+import currycoin.BlockHeader;
+
+import java.nio.ByteBuffer;
+
+/// A block read from a {@link BlockStore}: its header, and its body as a read-only buffer over
+/// the stored bytes.
+public record StoredBlock(BlockHeader header, ByteBuffer body) { }
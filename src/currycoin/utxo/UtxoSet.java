@@ -0,0 +1,686 @@
+package currycoin.utxo;
+
+import currycoin.Hash;
+import currycoin.OutPoint;
+import currycoin.TransactionOutput;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/// The set of unspent transaction outputs, stored on disk.
+///
+/// Outputs live in two files of a directory. The values file is an append-only log of outputs in
+/// their {@link TransactionOutput#apply} encoding. `index.dat` is a memory-mapped open-addressing
+/// hash table with linear probing, whose fixed-size slots hold the 36 byte {@link OutPoint} key
+/// and the position and length of the output in the log. Lookups therefore cost one probe
+/// sequence in the mapped table and one positional read, and nothing but the most recently used
+/// outputs, kept in a small LRU cache, is held on the heap.
+///
+/// Transaction hashes are chosen by whoever creates the transactions, so slots are not taken
+/// from them directly, which would let anyone grind out outputs piling up in one probe sequence.
+/// Instead the whole key goes through SipHash, keyed with a random salt kept in the index header.
+///
+/// Spending an output leaves a tombstone in the index, and its bytes in the log. Both are dropped
+/// the next time the table is rehashed, which also copies the live outputs into a new log, or on
+/// {@link #compact}. Logs are numbered by the index that refers to them: the new log is written
+/// in full before the new index replaces the old one, and the old log is deleted afterwards.
+///
+/// Lookups may run concurrently with each other; changes are applied in batches that are
+/// exclusive with everything else. Values are written before the index refers to them, but a
+/// batch is not atomic across a crash: call {@link #flush} at points the caller can recover to.
+public final class UtxoSet implements Closeable {
+	public static final int DEFAULT_CACHE_CAPACITY = 65_536;
+
+	private static final String INDEX_FILE = "index.dat";
+	private static final String VALUES_PREFIX = "values";
+	private static final String VALUES_SUFFIX = ".dat";
+
+	private static final int MAGIC = 0x5554_584f; // "UTXO"
+	private static final int VERSION = 1; // 0 was unsalted, with a single values file
+	private static final int HEADER_SIZE = 64;
+	private static final int CAPACITY_FIELD = 4;
+	private static final int SIZE_FIELD = 8;
+	private static final int TOMBSTONES_FIELD = 12;
+	private static final int VERSION_FIELD = 16;
+	private static final int GENERATION_FIELD = 20;
+	private static final int SALT_FIELD = 24;
+
+	// slot: 36 byte key, 8 byte value position, 4 byte value length
+	private static final int SLOT_SIZE = 48;
+	private static final int POSITION_FIELD = OutPoint.BYTES;
+	private static final int LENGTH_FIELD = POSITION_FIELD + Long.BYTES;
+	private static final int EMPTY = 0; // an encoded output is never empty
+	private static final int TOMBSTONE = -1;
+
+	private static final int MIN_CAPACITY = 1 << 10;
+	private static final int MAX_CAPACITY = 1 << 25; // keeps the mapping below 2 GiB
+
+	private static final SecureRandom RANDOM = new SecureRandom();
+
+	private final Path directory;
+	private FileChannel values;
+	private long valuesEnd;
+
+	private MappedByteBuffer index;
+	private int capacity; // always a power of two
+	private int size;
+	private int tombstones;
+	private int generation; // of the values file
+	private Salt salt;
+
+	private final HotCache cache;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private UtxoSet(Path directory, int cacheCapacity) {
+		this.directory = directory;
+		this.cache = new HotCache(cacheCapacity);
+	}
+
+	/**
+	 * Opens the set stored in the directory, creating an empty one if there is none.
+	 */
+	public static UtxoSet open(Path directory) throws IOException {
+		return open(directory, DEFAULT_CACHE_CAPACITY);
+	}
+
+	public static UtxoSet open(Path directory, int cacheCapacity) throws IOException {
+		Files.createDirectories(directory);
+		UtxoSet set = new UtxoSet(directory, cacheCapacity);
+		try {
+			set.loadIndex();
+			set.values = openValues(directory, set.generation);
+			set.valuesEnd = set.values.size();
+			set.deleteStaleFiles();
+			if (set.salt == null) {
+				set.rehash(set.capacity); // written before there was a salt
+			}
+			return set;
+		} catch (IOException | RuntimeException e) {
+			if (set.values != null) {
+				set.values.close();
+			}
+			throw e;
+		}
+	}
+
+	private static FileChannel openValues(Path directory, int generation) throws IOException {
+		return FileChannel.open(directory.resolve(valuesFile(generation)),
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+	}
+
+	private static String valuesFile(int generation) {
+		return generation == 0 ? VALUES_PREFIX + VALUES_SUFFIX : VALUES_PREFIX + "-" + generation + VALUES_SUFFIX;
+	}
+
+	/**
+	 * Deletes what a rehash interrupted by a crash left behind: the index it was writing, and the
+	 * log of either the old or the new index, whichever did not end up in use.
+	 */
+	private void deleteStaleFiles() throws IOException {
+		Files.deleteIfExists(directory.resolve(INDEX_FILE + ".tmp"));
+		String current = valuesFile(generation);
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, VALUES_PREFIX + "*" + VALUES_SUFFIX)) {
+			for (Path file : files) {
+				if (!file.getFileName().toString().equals(current)) {
+					Files.delete(file);
+				}
+			}
+		}
+	}
+
+	private void loadIndex() throws IOException {
+		Path file = directory.resolve(INDEX_FILE);
+		if (!Files.exists(file) || Files.size(file) == 0) {
+			index = map(file, MIN_CAPACITY);
+			capacity = MIN_CAPACITY;
+			salt = Salt.random();
+			writeHeader();
+			return;
+		}
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			while (header.hasRemaining()) {
+				if (channel.read(header, header.position()) < 0) {
+					throw new EOFException("Truncated UTXO index header");
+				}
+			}
+
+			if (header.getInt(0) != MAGIC) {
+				throw new IOException("Not a UTXO index: " + file);
+			}
+			capacity = header.getInt(CAPACITY_FIELD);
+			if (Integer.bitCount(capacity) != 1 || capacity < MIN_CAPACITY || capacity > MAX_CAPACITY) {
+				throw new IOException("Corrupt UTXO index capacity: " + capacity);
+			}
+			size = header.getInt(SIZE_FIELD);
+			tombstones = header.getInt(TOMBSTONES_FIELD);
+
+			int version = header.getInt(VERSION_FIELD);
+			if (version == VERSION) {
+				generation = header.getInt(GENERATION_FIELD);
+				salt = new Salt(header.getLong(SALT_FIELD), header.getLong(SALT_FIELD + Long.BYTES));
+			} else if (version != 0) {
+				throw new IOException("Unsupported UTXO index version: " + version);
+			}
+		}
+		index = map(file, capacity);
+	}
+
+	private static MappedByteBuffer map(Path file, int capacity) throws IOException {
+		// the mapping stays valid after the channel is closed
+		try (FileChannel channel = FileChannel.open(file,
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			return channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * SLOT_SIZE);
+		}
+	}
+
+	/**
+	 * Looks up an unspent output.
+	 */
+	public Optional<TransactionOutput> get(OutPoint outPoint) throws IOException {
+		TransactionOutput cached = cache.get(outPoint);
+		if (cached != null) {
+			return Optional.of(cached);
+		}
+
+		Key key = Key.of(outPoint);
+		lock.readLock().lock();
+		try {
+			int slot = find(index, capacity, salt, key);
+			if (slot < 0) {
+				return Optional.empty();
+			}
+
+			TransactionOutput output = read(slot);
+			cache.put(outPoint, output); // under the lock, so a concurrent spend can't be undone
+			return Optional.of(output);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public boolean contains(OutPoint outPoint) {
+		if (cache.get(outPoint) != null) {
+			return true;
+		}
+
+		Key key = Key.of(outPoint);
+		lock.readLock().lock();
+		try {
+			return find(index, capacity, salt, key) >= 0;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * The number of unspent outputs.
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return size;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public void add(OutPoint outPoint, TransactionOutput output) throws IOException {
+		batch().add(outPoint, output).commit();
+	}
+
+	public void spend(OutPoint outPoint) throws IOException {
+		batch().spend(outPoint).commit();
+	}
+
+	/**
+	 * Starts a batch of changes, such as the outputs created and spent by a block.
+	 */
+	public Batch batch() {
+		return new Batch();
+	}
+
+	/// Changes applied together by {@link #commit}, in the order they were made: an output added
+	/// and then spent within the same batch never reaches the files.
+	public final class Batch {
+		private final Map<OutPoint, TransactionOutput> added = new LinkedHashMap<>();
+		private final Set<OutPoint> spent = new LinkedHashSet<>();
+
+		private Batch() { }
+
+		public Batch add(OutPoint outPoint, TransactionOutput output) {
+			if (added.putIfAbsent(outPoint, output) != null) {
+				throw new IllegalArgumentException("Output added twice: " + outPoint);
+			}
+			return this;
+		}
+
+		public Batch spend(OutPoint outPoint) {
+			if (added.remove(outPoint) == null && !spent.add(outPoint)) {
+				throw new IllegalArgumentException("Output spent twice: " + outPoint);
+			}
+			return this;
+		}
+
+		/**
+		 * Applies the batch, or nothing at all if it spends an output that does not exist or
+		 * adds one that already does.
+		 *
+		 * @throws NoSuchElementException if a spent output is not in the set
+		 * @throws IllegalArgumentException if an added output is already in the set
+		 */
+		public void commit() throws IOException {
+			lock.writeLock().lock();
+			try {
+				commit0();
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+
+		private void commit0() throws IOException {
+			reserve(added.size());
+
+			int[] spentSlots = new int[spent.size()];
+			int i = 0;
+			for (OutPoint outPoint : spent) {
+				int slot = find(index, capacity, salt, Key.of(outPoint));
+				if (slot < 0) {
+					throw new NoSuchElementException("No unspent output " + outPoint);
+				}
+				spentSlots[i++] = slot;
+			}
+
+			int bytes = 0;
+			for (Map.Entry<OutPoint, TransactionOutput> entry : added.entrySet()) {
+				if (!spent.contains(entry.getKey()) && find(index, capacity, salt, Key.of(entry.getKey())) >= 0) {
+					throw new IllegalArgumentException("Output already exists: " + entry.getKey());
+				}
+				bytes = Math.addExact(bytes, entry.getValue().byteSize());
+			}
+
+			// values first, so the index never refers to bytes that aren't there
+			ByteBuffer buffer = ByteBuffer.allocate(bytes);
+			for (TransactionOutput output : added.values()) {
+				output.apply(buffer);
+			}
+			buffer.flip();
+			long position = valuesEnd;
+			while (buffer.hasRemaining()) {
+				values.write(buffer, position + buffer.position());
+			}
+			valuesEnd += bytes;
+
+			for (int slot : spentSlots) {
+				index.putInt(slotOffset(slot) + LENGTH_FIELD, TOMBSTONE);
+			}
+			size -= spentSlots.length;
+			tombstones += spentSlots.length;
+			for (OutPoint outPoint : spent) {
+				cache.remove(outPoint);
+			}
+
+			for (Map.Entry<OutPoint, TransactionOutput> entry : added.entrySet()) {
+				Key key = Key.of(entry.getKey());
+				int slot = -find(index, capacity, salt, key) - 1;
+				int offset = slotOffset(slot);
+				if (index.getInt(offset + LENGTH_FIELD) == TOMBSTONE) {
+					tombstones--;
+				}
+
+				int length = entry.getValue().byteSize();
+				key.write(index, offset);
+				index.putLong(offset + POSITION_FIELD, position);
+				index.putInt(offset + LENGTH_FIELD, length);
+				position += length;
+				size++;
+
+				cache.put(entry.getKey(), entry.getValue());
+			}
+			writeHeader();
+		}
+	}
+
+	/**
+	 * Writes everything to the storage device.
+	 */
+	public void flush() throws IOException {
+		lock.writeLock().lock();
+		try {
+			values.force(false);
+			index.force();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		lock.writeLock().lock();
+		try {
+			values.force(false);
+			index.force();
+			values.close();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private TransactionOutput read(int slot) throws IOException {
+		int offset = slotOffset(slot);
+		long position = index.getLong(offset + POSITION_FIELD);
+		ByteBuffer buffer = ByteBuffer.allocate(index.getInt(offset + LENGTH_FIELD));
+		while (buffer.hasRemaining()) {
+			if (values.read(buffer, position + buffer.position()) < 0) {
+				throw new EOFException("UTXO index refers past the end of the values");
+			}
+		}
+		buffer.flip();
+		return TransactionOutput.parseFrom(buffer);
+	}
+
+	/**
+	 * Returns the slot holding the key, or {@code -(slot + 1)} for the slot to insert it into.
+	 */
+	private static int find(ByteBuffer index, int capacity, Salt salt, Key key) {
+		int mask = capacity - 1;
+		int free = -1;
+		for (int slot = salt.spread(key) & mask; ; slot = (slot + 1) & mask) {
+			int offset = slotOffset(slot);
+			int length = index.getInt(offset + LENGTH_FIELD);
+			if (length == EMPTY) {
+				return -(free >= 0 ? free : slot) - 1;
+			} else if (length == TOMBSTONE) {
+				if (free < 0) free = slot;
+			} else if (key.matches(index, offset)) {
+				return slot;
+			}
+		}
+	}
+
+	/**
+	 * Makes room for more outputs, rehashing into a new table once live slots and tombstones
+	 * fill three quarters of it. The new table is at most half full.
+	 */
+	private void reserve(int extra) throws IOException {
+		if ((long) (size + tombstones + extra) * 4 <= (long) capacity * 3) {
+			return;
+		}
+
+		long needed = (long) (size + extra) * 2;
+		int newCapacity = MIN_CAPACITY;
+		while (newCapacity < needed) {
+			if (newCapacity == MAX_CAPACITY) {
+				throw new IllegalStateException("UTXO index is full");
+			}
+			newCapacity <<= 1;
+		}
+		rehash(newCapacity);
+	}
+
+	/**
+	 * Drops the tombstones from the index and the spent outputs from the log, shrinking the
+	 * table if it has grown much larger than the outputs need. This happens on its own whenever
+	 * the table is rehashed to grow, so it is only needed to reclaim space early, for instance
+	 * after many spends.
+	 */
+	public void compact() throws IOException {
+		lock.writeLock().lock();
+		try {
+			int newCapacity = MIN_CAPACITY;
+			while (newCapacity < (long) size * 2) {
+				newCapacity <<= 1;
+			}
+			rehash(newCapacity);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Moves the live outputs into a new table with a fresh salt, and their values into a new log.
+	 */
+	private void rehash(int newCapacity) throws IOException {
+		Salt newSalt = Salt.random();
+		int newGeneration = generation + 1;
+		Path temporary = directory.resolve(INDEX_FILE + ".tmp");
+		Files.deleteIfExists(temporary);
+		MappedByteBuffer table = map(temporary, newCapacity);
+
+		Path newValuesFile = directory.resolve(valuesFile(newGeneration));
+		Files.deleteIfExists(newValuesFile);
+		FileChannel newValues = openValues(directory, newGeneration);
+		long position = 0;
+		try {
+			for (int slot = 0; slot < capacity; slot++) {
+				int offset = slotOffset(slot);
+				int length = index.getInt(offset + LENGTH_FIELD);
+				if (length > 0) {
+					Key key = Key.read(index, offset);
+					int target = slotOffset(-find(table, newCapacity, newSalt, key) - 1);
+					table.put(target, index, offset, SLOT_SIZE);
+					copyValue(index.getLong(offset + POSITION_FIELD), length, newValues);
+					table.putLong(target + POSITION_FIELD, position);
+					position += length;
+				}
+			}
+			newValues.force(false);
+		} catch (IOException | RuntimeException e) {
+			newValues.close();
+			Files.deleteIfExists(newValuesFile);
+			throw e;
+		}
+
+		FileChannel oldValues = values;
+		int oldGeneration = generation;
+		index = table;
+		capacity = newCapacity;
+		tombstones = 0;
+		generation = newGeneration;
+		salt = newSalt;
+		values = newValues;
+		valuesEnd = position;
+		writeHeader();
+		table.force();
+		Files.move(temporary, directory.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		// the new index is in place, so nothing refers to the old log anymore
+		oldValues.close();
+		Files.deleteIfExists(directory.resolve(valuesFile(oldGeneration)));
+	}
+
+	/**
+	 * Appends a value from the current log to the given one.
+	 */
+	private void copyValue(long position, int length, FileChannel target) throws IOException {
+		for (long copied = 0; copied < length; ) {
+			long count = values.transferTo(position + copied, length - copied, target);
+			if (count <= 0) {
+				throw new EOFException("UTXO index refers past the end of the values");
+			}
+			copied += count;
+		}
+	}
+
+	private void writeHeader() {
+		index.putInt(0, MAGIC);
+		index.putInt(CAPACITY_FIELD, capacity);
+		index.putInt(SIZE_FIELD, size);
+		index.putInt(TOMBSTONES_FIELD, tombstones);
+		index.putInt(VERSION_FIELD, VERSION);
+		index.putInt(GENERATION_FIELD, generation);
+		index.putLong(SALT_FIELD, salt.key0());
+		index.putLong(SALT_FIELD + Long.BYTES, salt.key1());
+	}
+
+	private static int slotOffset(int slot) {
+		return HEADER_SIZE + slot * SLOT_SIZE;
+	}
+
+	/// An out point in the form it is stored in the index.
+	private record Key(long hash0, long hash1, long hash2, long hash3, int index) {
+		static Key of(OutPoint outPoint) {
+			Hash hash = outPoint.transaction();
+			return new Key(hash.word(0), hash.word(1), hash.word(2), hash.word(3), outPoint.index());
+		}
+
+		static Key read(ByteBuffer buffer, int offset) {
+			return new Key(buffer.getLong(offset), buffer.getLong(offset + 8), buffer.getLong(offset + 16),
+					buffer.getLong(offset + 24), buffer.getInt(offset + 32));
+		}
+
+		void write(ByteBuffer buffer, int offset) {
+			buffer.putLong(offset, hash0);
+			buffer.putLong(offset + 8, hash1);
+			buffer.putLong(offset + 16, hash2);
+			buffer.putLong(offset + 24, hash3);
+			buffer.putInt(offset + 32, index);
+		}
+
+		boolean matches(ByteBuffer buffer, int offset) {
+			return buffer.getLong(offset) == hash0
+					&& buffer.getLong(offset + 8) == hash1
+					&& buffer.getLong(offset + 16) == hash2
+					&& buffer.getLong(offset + 24) == hash3
+					&& buffer.getInt(offset + 32) == index;
+		}
+	}
+
+	/// The secret key of the SipHash-2-4 that places keys in the table. The message is the five
+	/// words of the key, the out point index padded with its length as the last.
+	private record Salt(long key0, long key1) {
+		static Salt random() {
+			return new Salt(RANDOM.nextLong(), RANDOM.nextLong());
+		}
+
+		int spread(Key key) {
+			SipHash hash = new SipHash(key0, key1);
+			hash.add(key.hash0());
+			hash.add(key.hash1());
+			hash.add(key.hash2());
+			hash.add(key.hash3());
+			hash.add((long) OutPoint.BYTES << 56 | Integer.toUnsignedLong(key.index()));
+			long mixed = hash.finish();
+			return (int) (mixed ^ (mixed >>> 32));
+		}
+	}
+
+	private static final class SipHash {
+		private long v0;
+		private long v1;
+		private long v2;
+		private long v3;
+
+		SipHash(long key0, long key1) {
+			v0 = key0 ^ 0x736f_6d65_7073_6575L;
+			v1 = key1 ^ 0x646f_7261_6e64_6f6dL;
+			v2 = key0 ^ 0x6c79_6765_6e65_7261L;
+			v3 = key1 ^ 0x7465_6462_7974_6573L;
+		}
+
+		void add(long word) {
+			v3 ^= word;
+			round();
+			round();
+			v0 ^= word;
+		}
+
+		long finish() {
+			v2 ^= 0xff;
+			round();
+			round();
+			round();
+			round();
+			return v0 ^ v1 ^ v2 ^ v3;
+		}
+
+		private void round() {
+			v0 += v1;
+			v1 = Long.rotateLeft(v1, 13) ^ v0;
+			v0 = Long.rotateLeft(v0, 32);
+			v2 += v3;
+			v3 = Long.rotateLeft(v3, 16) ^ v2;
+			v0 += v3;
+			v3 = Long.rotateLeft(v3, 21) ^ v0;
+			v2 += v1;
+			v1 = Long.rotateLeft(v1, 17) ^ v2;
+			v2 = Long.rotateLeft(v2, 32);
+		}
+	}
+
+	/// A striped LRU cache of recently used outputs, like {@link currycoin.script.PublicKeyCache}.
+	private static final class HotCache {
+		private static final int STRIPES = 16;
+
+		private final Stripe[] stripes = new Stripe[STRIPES];
+
+		HotCache(int capacity) {
+			if (capacity < 0) {
+				throw new IllegalArgumentException("Capacity must not be negative");
+			}
+
+			int perStripe = capacity / STRIPES;
+			for (int i = 0; i < STRIPES; i++) {
+				stripes[i] = new Stripe(perStripe);
+			}
+		}
+
+		TransactionOutput get(OutPoint outPoint) {
+			Stripe stripe = stripe(outPoint);
+			synchronized (stripe) {
+				return stripe.get(outPoint);
+			}
+		}
+
+		void put(OutPoint outPoint, TransactionOutput output) {
+			Stripe stripe = stripe(outPoint);
+			synchronized (stripe) {
+				stripe.put(outPoint, output);
+			}
+		}
+
+		void remove(OutPoint outPoint) {
+			Stripe stripe = stripe(outPoint);
+			synchronized (stripe) {
+				stripe.remove(outPoint);
+			}
+		}
+
+		private Stripe stripe(OutPoint outPoint) {
+			return stripes[(outPoint.hashCode() & 0x7fff_ffff) % STRIPES];
+		}
+
+		private static final class Stripe extends LinkedHashMap<OutPoint, TransactionOutput> {
+			private final int capacity;
+
+			Stripe(int capacity) {
+				super(16, 0.75f, true);
+				this.capacity = capacity;
+			}
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<OutPoint, TransactionOutput> eldest) {
+				return size() > capacity;
+			}
+		}
+	}
+}
@@ -0,0 +1,7 @@
+package currycoin.validation;
+
+import currycoin.Hash;
+import currycoin.TransactionInput;
+
+/// An input to validate, together with the data its signatures must sign.
+public record InputCheck(TransactionInput input, Hash dataToSign) { }
@@ -0,0 +1,9 @@
+package currycoin.validation;
+
+/// The outcome of validating one input.
+public enum InputResult {
+	VALID,
+	INVALID,
+	/// Not validated, because another input of the batch was already found invalid.
+	CANCELLED,
+}
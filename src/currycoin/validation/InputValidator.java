@@ -0,0 +1,142 @@
+package currycoin.validation;
+
+import currycoin.script.SignatureBatch;
+import currycoin.script.SignatureVerifier;
+import currycoin.script.metrics.ScriptMetrics;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+
+/// Validates a batch of inputs, such as all inputs of a block, across the threads of an executor.
+///
+/// Each input runs {@link currycoin.TransactionInput#unlocks} as its own task. As soon as one
+/// input turns out invalid the batch is failed. Tasks check for that only when they start: the
+/// ones starting later skip their input and report it as {@link InputResult#CANCELLED}, while
+/// scripts already running are not interrupted, but waited for and reported as they end.
+/// A work-stealing pool suits this CPU-bound work best, but a virtual-thread-per-task executor
+/// works as well.
+///
+/// Only scripts failing make an input invalid. Anything else going wrong, such as a bug in the
+/// interpreter, fails the whole batch with a {@link CompletionException}.
+///
+/// {@link #validateBlock} goes further and defers the signature checks that only decide whether
+/// a script fails to a {@link SignatureBatch}, verified in one go once every script has run.
+public final class InputValidator {
+	private final Executor executor;
+	private final SignatureVerifier signatureVerifier;
+
+	public InputValidator() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	public InputValidator(Executor executor) {
+		this(executor, SignatureVerifier.sequential());
+	}
+
+	public InputValidator(Executor executor, SignatureVerifier signatureVerifier) {
+		this.executor = executor;
+		this.signatureVerifier = signatureVerifier;
+	}
+
+	/**
+	 * Validates every input, blocking until the batch is decided.
+	 *
+	 * @throws CompletionException if validating an input failed other than by its script failing
+	 */
+	public ValidationResult validate(List<InputCheck> checks) throws InterruptedException {
+		return new ValidationResult(Arrays.asList(run(checks, index -> signatureVerifier)));
+	}
+
+	/**
+	 * Validates every input like {@link #validate}, but runs the scripts first and only then
+	 * verifies their {@code SIGNATURE_CHECK_VERIFY} and {@code SIGNATURE_CHECK_MULTI_VERIFY}
+	 * signatures, all together in one parallel batch. An input is only reported valid once its
+	 * signatures are verified; if any fails, the inputs whose signatures were skipped because of it
+	 * are reported as {@link InputResult#CANCELLED}. If a script already fails, the signatures are
+	 * not verified at all, and every input that deferred any is reported as cancelled.
+	 *
+	 * @throws CompletionException if validating an input or verifying a signature failed other than
+	 *                             by a script or signature failing
+	 */
+	public ValidationResult validateBlock(List<InputCheck> checks) throws InterruptedException {
+		SignatureBatch signatures = new SignatureBatch(signatureVerifier);
+		InputResult[] results = run(checks, signatures::verifier);
+		BitSet deferred = signatures.pendingTags(); // the passing inputs that are yet to be verified
+		for (int index = 0; index < results.length; index++) {
+			if (results[index] != InputResult.VALID) {
+				deferred.clear(index);
+			}
+		}
+
+		if (Arrays.asList(results).contains(InputResult.INVALID)) {
+			// no point in checking the signatures
+			deferred.stream().forEach(index -> results[index] = InputResult.CANCELLED);
+			return new ValidationResult(Arrays.asList(results));
+		}
+
+		SignatureBatch.Result verified = signatures.verify(executor);
+		verified.failed().stream().forEach(index -> results[index] = InputResult.INVALID);
+		verified.unchecked().stream().forEach(index -> results[index] = InputResult.CANCELLED);
+		if (ScriptMetrics.ENABLED) {
+			// unlocks leaves these to be recorded here, now that their signatures are decided
+			deferred.stream().filter(index -> results[index] != InputResult.CANCELLED)
+					.forEach(index -> ScriptMetrics.recordScript(results[index] == InputResult.VALID));
+		}
+		return new ValidationResult(Arrays.asList(results));
+	}
+
+	private InputResult[] run(List<InputCheck> checks, IntFunction<SignatureVerifier> verifiers) throws InterruptedException {
+		InputResult[] results = new InputResult[checks.size()];
+		Arrays.fill(results, InputResult.CANCELLED);
+
+		Batch batch = new Batch(checks.size());
+		for (int i = 0; i < checks.size(); i++) {
+			int index = i;
+			InputCheck check = checks.get(i);
+			SignatureVerifier verifier = verifiers.apply(i);
+			executor.execute(() -> {
+				try {
+					if (!batch.failed) {
+						results[index] = validate(check, verifier);
+						if (results[index] == InputResult.INVALID) {
+							batch.failed = true;
+						}
+					}
+				} catch (RuntimeException | Error e) {
+					batch.error.compareAndSet(null, e);
+					batch.failed = true;
+				} finally {
+					batch.remaining.countDown();
+				}
+			});
+		}
+
+		batch.remaining.await();
+		Throwable error = batch.error.get();
+		if (error != null) {
+			throw new CompletionException(error);
+		}
+		return results;
+	}
+
+	private static InputResult validate(InputCheck check, SignatureVerifier verifier) {
+		return check.input().unlocks(check.dataToSign(), verifier) ? InputResult.VALID : InputResult.INVALID;
+	}
+
+	private static final class Batch {
+		final CountDownLatch remaining;
+		final AtomicReference<Throwable> error = new AtomicReference<>(); // the first unexpected failure
+		volatile boolean failed;
+
+		Batch(int size) {
+			this.remaining = new CountDownLatch(size);
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package currycoin.validation;
+
+import java.util.List;
+
+/// The outcome of validating a batch of inputs, in the order they were given.
+public record ValidationResult(List<InputResult> results) {
+	public ValidationResult {
+		results = List.copyOf(results);
+	}
+
+	public boolean allValid() {
+		for (InputResult result : results) {
+			if (result != InputResult.VALID) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The index of the first input found invalid, or -1 if there is none.
+	 */
+	public int firstInvalid() {
+		return results.indexOf(InputResult.INVALID);
+	}
+}
@@ -0,0 +1,91 @@
+package currycoin;
+
+import currycoin.script.Script;
+import currycoin.script.ScriptException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.List;
+
+import static currycoin.script.instructions.LoadInstruction.loadInt;
+import static currycoin.script.instructions.OrdinaryInstruction.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionTest {
+	// where the length of the locking script of the only input sits in the encoding
+	private static final int LOCKING_LENGTH = Integer.BYTES + OutPoint.BYTES;
+
+	private static Transaction transaction() {
+		TransactionInput input = new TransactionInput(Hash.empty(), 3, Script.of(loadInt(1)), Script.of(VERIFY));
+		TransactionOutput output = new TransactionOutput(50, new TransactionOutput.ScriptMatch(Script.of(PUSH_1)));
+		return new Transaction(List.of(input), List.of(output));
+	}
+
+	private static byte[] encode(Transaction transaction) {
+		ByteBuffer buffer = ByteBuffer.allocate(transaction.byteSize());
+		transaction.apply(buffer);
+		return buffer.array();
+	}
+
+	private static void assertInvalid(byte[] encoded) {
+		assertThrows(ScriptException.InvalidScriptException.class, () -> Transaction.parseFrom(ByteBuffer.wrap(encoded)));
+	}
+
+	@Test
+	void roundTrips() {
+		Transaction transaction = transaction();
+		ByteBuffer buffer = ByteBuffer.wrap(encode(transaction));
+		assertEquals(transaction, Transaction.parseFrom(buffer));
+		assertFalse(buffer.hasRemaining());
+	}
+
+	@Test
+	void txidIsTheHashOfTheEncoding() throws Exception {
+		Transaction transaction = transaction();
+		byte[] expected = MessageDigest.getInstance("SHA-256").digest(encode(transaction));
+		assertEquals(new Hash(expected), transaction.txid());
+	}
+
+	@Test
+	void rejectsScriptLengthPastTheEnd() {
+		byte[] encoded = encode(transaction());
+		ByteBuffer.wrap(encoded).putInt(LOCKING_LENGTH, Integer.MAX_VALUE - 8);
+		assertInvalid(encoded);
+	}
+
+	@Test
+	void rejectsNegativeScriptLength() {
+		byte[] encoded = encode(transaction());
+		ByteBuffer.wrap(encoded).putInt(LOCKING_LENGTH, -5);
+		assertInvalid(encoded);
+	}
+
+	@Test
+	void rejectsNegativeOutputScriptLength() {
+		byte[] encoded = encode(transaction());
+		ByteBuffer.wrap(encoded).putInt(encoded.length - Integer.BYTES - 1, -2);
+		assertInvalid(encoded);
+	}
+
+	@Test
+	void rejectsCountsPastTheEnd() {
+		byte[] encoded = encode(transaction());
+		ByteBuffer.wrap(encoded).putInt(0, Integer.MAX_VALUE);
+		assertInvalid(encoded);
+
+		encoded = encode(transaction());
+		ByteBuffer.wrap(encoded).putInt(0, -1);
+		assertInvalid(encoded);
+	}
+
+	@Test
+	void rejectsEveryTruncation() {
+		byte[] encoded = encode(transaction());
+		for (int length = 0; length < encoded.length; length++) {
+			byte[] truncated = new byte[length];
+			System.arraycopy(encoded, 0, truncated, 0, length);
+			assertInvalid(truncated);
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package currycoin.merkle;
+
+import currycoin.Hash;
+import org.junit.jupiter.api.Test;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MerkleTreeTest {
+	private static List<Hash> leaves(Random random, int count) {
+		List<Hash> leaves = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			byte[] data = new byte[Hash.BYTES];
+			random.nextBytes(data);
+			leaves.add(new Hash(data));
+		}
+		return leaves;
+	}
+
+	/**
+	 * The root computed level by level, straight from the definition.
+	 */
+	private static Hash naiveRoot(List<Hash> leaves) throws NoSuchAlgorithmException {
+		if (leaves.isEmpty()) {
+			return Hash.empty();
+		}
+
+		List<Hash> level = leaves;
+		while (level.size() > 1) {
+			List<Hash> parents = new ArrayList<>();
+			for (int i = 0; i < level.size(); i += 2) {
+				Hash left = level.get(i);
+				Hash right = i + 1 < level.size() ? level.get(i + 1) : left;
+				MessageDigest digest = MessageDigest.getInstance("SHA-256");
+				digest.update(left.data());
+				digest.update(right.data());
+				parents.add(new Hash(digest.digest()));
+			}
+			level = parents;
+		}
+		return level.getFirst();
+	}
+
+	@Test
+	void rootsMatchTheDefinition() throws Exception {
+		Random random = new Random(12);
+		for (int size : new int[] {0, 1, 2, 3, 4, 5, 7, 8, 9, 16, 17, 31, 33, 100, 5000}) {
+			List<Hash> leaves = leaves(random, size);
+			assertEquals(naiveRoot(leaves), MerkleTree.of(leaves).root(), "size " + size);
+		}
+	}
+
+	@Test
+	void appendingUpdatesTheRoot() throws Exception {
+		List<Hash> leaves = leaves(new Random(13), 70);
+		MerkleTree tree = new MerkleTree();
+		for (int i = 0; i < leaves.size(); i++) {
+			tree.append(leaves.get(i));
+			assertEquals(naiveRoot(leaves.subList(0, i + 1)), tree.root(), "size " + (i + 1));
+		}
+
+		MerkleTree inBatches = new MerkleTree();
+		inBatches.appendAll(leaves.subList(0, 5));
+		inBatches.appendAll(leaves.subList(5, 33));
+		inBatches.appendAll(leaves.subList(33, 70));
+		assertEquals(tree.root(), inBatches.root());
+	}
+
+	@Test
+	void settingUpdatesTheRoot() throws Exception {
+		Random random = new Random(14);
+		List<Hash> leaves = new ArrayList<>(leaves(random, 37));
+		MerkleTree tree = MerkleTree.of(leaves);
+		List<Hash> replacements = leaves(random, 20);
+		for (Hash replacement : replacements) {
+			int index = random.nextInt(leaves.size());
+			leaves.set(index, replacement);
+			tree.set(index, replacement);
+			assertEquals(naiveRoot(leaves), tree.root(), "index " + index);
+			assertEquals(replacement, tree.leaf(index));
+		}
+	}
+
+	@Test
+	void proofsVerifyEveryLeaf() {
+		Random random = new Random(15);
+		for (int size : new int[] {1, 2, 3, 6, 11, 64, 65}) {
+			List<Hash> leaves = leaves(random, size);
+			MerkleTree tree = MerkleTree.of(leaves);
+			Hash root = tree.root();
+			for (int i = 0; i < size; i++) {
+				MerkleProof proof = tree.proof(i);
+				assertTrue(proof.verify(leaves.get(i), root), "leaf " + i + " of " + size);
+				if (size > 1) {
+					assertFalse(proof.verify(leaves.get((i + 1) % size), root), "other leaf at " + i);
+				}
+			}
+		}
+	}
+
+	@Test
+	void rejectsDuplicateLeaves() {
+		List<Hash> leaves = leaves(new Random(16), 4);
+		Hash a = leaves.get(0), b = leaves.get(1), c = leaves.get(2), d = leaves.get(3);
+		MerkleTree tree = MerkleTree.of(List.of(a, b, c));
+		Hash root = tree.root();
+
+		// [A, B, C, C] would have the root of [A, B, C]
+		assertThrows(IllegalArgumentException.class, () -> tree.append(c));
+		assertThrows(IllegalArgumentException.class, () -> tree.appendAll(List.of(d, d)));
+		assertThrows(IllegalArgumentException.class, () -> tree.set(0, b));
+		assertThrows(IllegalArgumentException.class, () -> MerkleTree.of(List.of(a, b, c, c)));
+		assertEquals(3, tree.size());
+		assertEquals(root, tree.root());
+
+		// a leaf may be set to itself, and a replaced leaf may come back
+		tree.set(2, c);
+		tree.set(2, d);
+		tree.append(c);
+		assertEquals(List.of(a, b, d, c), List.of(tree.leaf(0), tree.leaf(1), tree.leaf(2), tree.leaf(3)));
+	}
+}
@@ -0,0 +1,108 @@
+package currycoin.mining;
+
+import currycoin.BlockHeader;
+import currycoin.Hash;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeaderHasherTest {
+	private static Hash randomHash(Random random) {
+		byte[] data = new byte[Hash.BYTES];
+		random.nextBytes(data);
+		return new Hash(data);
+	}
+
+	/**
+	 * A target met by one hash in 2^zeroBits.
+	 */
+	private static Hash target(int zeroBits) {
+		byte[] data = new byte[Hash.BYTES];
+		Arrays.fill(data, (byte) 0xff);
+		for (int bit = 0; bit < zeroBits; bit++) {
+			data[bit / 8] &= (byte) ~(0x80 >>> bit % 8);
+		}
+		return new Hash(data);
+	}
+
+	@Test
+	void hashesLikeTheHeader() {
+		Random random = new Random(11);
+		int[] schedule = new int[64];
+		int[] out = new int[8];
+		for (int run = 0; run < 100; run++) {
+			Hash prevHash = randomHash(random);
+			Hash transHash = randomHash(random);
+			HeaderHasher hasher = new HeaderHasher(prevHash, transHash);
+			for (int nonce : new int[] {0, -1, Integer.MIN_VALUE, Integer.MAX_VALUE, random.nextInt()}) {
+				hasher.hash(nonce, schedule, out);
+				BlockHeader header = new BlockHeader(prevHash, transHash, nonce);
+				assertArrayEquals(HeaderHasher.words(header.hash()), out, "nonce " + nonce);
+				assertEquals(header, hasher.header(nonce));
+			}
+		}
+	}
+
+	@Test
+	void meetsTargetsUpToAndIncludingThemselves() {
+		int[] target = {0, 0x7fff_ffff, 3, 3, 3, 3, 3, 3};
+		assertTrue(HeaderHasher.meetsTarget(target.clone(), target));
+
+		int[] below = target.clone();
+		below[7] = 2;
+		assertTrue(HeaderHasher.meetsTarget(below, target));
+
+		int[] above = target.clone();
+		above[7] = 4;
+		assertFalse(HeaderHasher.meetsTarget(above, target));
+
+		// an earlier word decides, whatever comes after it
+		int[] earlier = {0, 0x7fff_fffe, -1, -1, -1, -1, -1, -1};
+		assertTrue(HeaderHasher.meetsTarget(earlier, target));
+
+		// words compare unsigned
+		int[] signed = target.clone();
+		signed[1] = Integer.MIN_VALUE;
+		assertFalse(HeaderHasher.meetsTarget(signed, target));
+	}
+
+	@Test
+	void minerFindsAHeaderMeetingTheTarget() throws Exception {
+		Random random = new Random(12);
+		Hash prevHash = randomHash(random);
+		Hash transHash = randomHash(random);
+		Hash target = target(12);
+
+		MiningJob job = new Miner(2).mine(prevHash, transHash, target);
+		BlockHeader header = job.result().get(1, TimeUnit.MINUTES).orElseThrow();
+		assertEquals(prevHash, header.prevHash());
+		assertEquals(transHash, header.transHash());
+		assertTrue(HeaderHasher.meetsTarget(HeaderHasher.words(header.hash()), HeaderHasher.words(target)));
+		assertTrue(job.isDone());
+		assertTrue(job.hashesTried() > 0);
+	}
+
+	@Test
+	void minerStopsWhenCancelled() throws Exception {
+		Random random = new Random(13);
+		MiningJob job = new Miner(2).mine(randomHash(random), randomHash(random), target(256));
+		assertFalse(job.isDone());
+
+		job.cancel();
+		assertEquals(Optional.empty(), job.result().get(1, TimeUnit.MINUTES));
+
+		// workers notice at their next batch boundary, after which the count stays put
+		boolean stopped = false;
+		for (int attempt = 0; attempt < 100 && !stopped; attempt++) {
+			long tried = job.hashesTried();
+			Thread.sleep(50);
+			stopped = job.hashesTried() == tried;
+		}
+		assertTrue(stopped);
+	}
+}
@@ -0,0 +1,22 @@
+package currycoin.script;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ByteArrayTest {
+	@Test
+	void compactKeepsWholeArrays() {
+		ByteArray whole = new ByteArray(new byte[] {1, 2, 3});
+		assertSame(whole, whole.compact());
+	}
+
+	@Test
+	void compactCopiesSlices() {
+		ByteArray slice = new ByteArray(new byte[] {1, 2, 3, 4}).slice(1, 2);
+		ByteArray compacted = slice.compact();
+		assertNotSame(slice, compacted);
+		assertEquals(slice, compacted);
+		assertSame(compacted, compacted.compact());
+	}
+}
@@ -0,0 +1,101 @@
+package currycoin.script;
+
+import currycoin.Hash;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static currycoin.script.instructions.ConditionalBlock.whenTrue;
+import static currycoin.script.instructions.LoadInstruction.loadInt;
+import static currycoin.script.instructions.OrdinaryInstruction.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExecutionBudgetTest {
+	private static ScriptStack stack(ExecutionLimits limits) {
+		return new ScriptStack(Hash.empty(), SignatureVerifier.sequential(), limits);
+	}
+
+	private static ByteArray bytes(int length) {
+		return new ByteArray(new byte[length]);
+	}
+
+	@Test
+	void limitsTheStackDepth() throws ScriptException {
+		ScriptStack stack = stack(new ExecutionLimits(100, 100, 3, 1000));
+		stack.push(bytes(1));
+		stack.pushInt(7);
+		stack.copyToTop(0);
+		assertThrows(ScriptException.BudgetExceededException.class, () -> stack.push(bytes(0)));
+		assertThrows(ScriptException.BudgetExceededException.class, () -> stack.pushInt(0));
+		assertThrows(ScriptException.BudgetExceededException.class, () -> stack.copyToTop(2));
+		assertEquals(3, stack.depth());
+
+		// popped items make room again
+		stack.drop();
+		stack.pushBoolean(true);
+		assertEquals(3, stack.depth());
+	}
+
+	@Test
+	void limitsTheStackBytes() throws ScriptException {
+		ScriptStack stack = stack(new ExecutionLimits(100, 100, 100, 10));
+		stack.push(bytes(4));
+		stack.pushInt(0x01_0000); // three bytes
+		stack.copyToTop(0);
+		assertThrows(ScriptException.BudgetExceededException.class, () -> stack.push(bytes(1)));
+		assertThrows(ScriptException.BudgetExceededException.class, () -> stack.copyToTop(2));
+		assertEquals(3, stack.depth());
+
+		// an empty item and the int zero take no bytes
+		stack.push(bytes(0));
+		stack.pushInt(0);
+		stack.pushBoolean(false);
+
+		// every pop variant gives its bytes back
+		stack.drop();
+		stack.drop();
+		stack.drop();
+		assertEquals(0x01_0000, stack.popInt());
+		stack.push(bytes(3));
+		assertEquals(3, stack.pop().length());
+		stack.drop();
+		stack.pushInt(-1); // four bytes
+		assertTrue(stack.popBoolean());
+		stack.push(bytes(6));
+		assertThrows(ScriptException.BudgetExceededException.class, () -> stack.push(bytes(1)));
+	}
+
+	@Test
+	void limitsInstructions() throws ScriptException {
+		ExecutionLimits limits = new ExecutionLimits(3, 100, 100, 1000);
+		Script.of(PUSH_1, PUSH_1, DROP_TWO).execute(stack(limits));
+		assertThrows(ScriptException.BudgetExceededException.class,
+				() -> Script.of(PUSH_1, PUSH_1, DROP_TWO, NO_OPERATION).execute(stack(limits)));
+
+		// a block counts once besides what it runs
+		Script.of(loadInt(1), whenTrue(NO_OPERATION)).execute(stack(limits));
+		assertThrows(ScriptException.BudgetExceededException.class,
+				() -> Script.of(loadInt(1), whenTrue(NO_OPERATION, NO_OPERATION)).execute(stack(limits)));
+	}
+
+	@Test
+	void chargesSignatureOperationsBeforeVerifying() throws ScriptException {
+		AtomicInteger checks = new AtomicInteger();
+		SignatureVerifier counting = (signature, publicKey, hash) -> {
+			checks.incrementAndGet();
+			return true;
+		};
+		ExecutionLimits limits = new ExecutionLimits(100, 2, 100, 1000);
+
+		Script checkTwice = Script.of(loadInt(1), loadInt(2), SIGNATURE_CHECK_VERIFY, loadInt(1), loadInt(2), SIGNATURE_CHECK_VERIFY);
+		checkTwice.execute(new ScriptStack(Hash.empty(), counting, limits));
+		assertEquals(2, checks.get());
+
+		// one signature against three keys is charged three operations up front
+		ScriptStack stack = new ScriptStack(Hash.empty(), counting, limits);
+		Script multi = Script.of(loadInt(9), loadInt(1), loadInt(5), loadInt(6), loadInt(7), loadInt(3), SIGNATURE_CHECK_MULTI);
+		assertThrows(ScriptException.BudgetExceededException.class, () -> multi.execute(stack));
+		assertEquals(2, checks.get());
+		assertEquals(0, stack.budget().signatureOperations());
+	}
+}
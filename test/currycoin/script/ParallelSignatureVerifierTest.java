@@ -0,0 +1,106 @@
+package currycoin.script;
+
+import currycoin.Hash;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelSignatureVerifierTest {
+	private static ExecutorService executor;
+
+	@BeforeAll
+	static void startExecutor() {
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@AfterAll
+	static void stopExecutor() {
+		executor.shutdownNow();
+	}
+
+	/// Matches a signature against the key holding the same bytes, counting every check.
+	private static final class Counting implements SignatureVerifier {
+		final AtomicInteger checks = new AtomicInteger();
+
+		@Override
+		public boolean check(ByteArray signature, ByteArray publicKey, Hash hash) {
+			checks.incrementAndGet();
+			return signature.equals(publicKey);
+		}
+	}
+
+	private static ByteArray item(int value) {
+		return ByteArray.fromInt(value);
+	}
+
+	private static List<ByteArray> keys(int n) {
+		List<ByteArray> keys = new ArrayList<>(n);
+		for (int i = 0; i < n; i++) {
+			keys.add(item(i + 1));
+		}
+		return keys;
+	}
+
+	@Test
+	void matchesLikeTheSequentialMatcher() {
+		Random random = new Random(4);
+		for (int round = 0; round < 5000; round++) {
+			int n = random.nextInt(12);
+			int m = random.nextInt(n + 2);
+			List<ByteArray> keys = keys(n);
+			List<ByteArray> signatures = new ArrayList<>(m);
+			for (int i = 0; i < m; i++) {
+				// mostly keys, some of them out of order, and some matching nothing
+				signatures.add(random.nextInt(8) == 0 ? item(-1) : item(1 + random.nextInt(Math.max(n, 1))));
+			}
+			if (random.nextBoolean()) {
+				signatures.sort((a, b) -> Integer.compare(a.toInt(), b.toInt()));
+			}
+
+			int expected = new Counting().checkMulti(signatures, keys, Hash.empty());
+			int actual = new ParallelSignatureVerifier(executor, new Counting()).checkMulti(signatures, keys, Hash.empty());
+			assertEquals(expected, actual, () -> signatures + " against " + keys);
+		}
+	}
+
+	@Test
+	void verifiesAtMostTwiceAsManyPairsAsKeys() {
+		int n = 200;
+		List<ByteArray> keys = keys(n);
+		List<ByteArray> signatures = new ArrayList<>();
+		for (int i = 1; i < n; i += 2) {
+			signatures.add(item(i + 1));
+		}
+
+		Counting counting = new Counting();
+		assertEquals(signatures.size(), new ParallelSignatureVerifier(executor, counting).checkMulti(signatures, keys, Hash.empty()));
+		assertTrue(counting.checks.get() < 2 * n, counting.checks + " checks");
+	}
+
+	@Test
+	void doesNotWaitOnQueuedWork() {
+		ExecutorService single = Executors.newSingleThreadExecutor();
+		try {
+			SignatureVerifier verifier = new ParallelSignatureVerifier(single, new Counting());
+			List<ByteArray> keys = keys(8);
+			List<ByteArray> signatures = List.of(item(7), item(8));
+
+			// the only thread of the executor runs the check, so its speculation can never start
+			Future<Integer> matched = single.submit(() -> verifier.checkMulti(signatures, keys, Hash.empty()));
+			assertEquals(2, assertTimeoutPreemptively(Duration.ofSeconds(10), () -> matched.get()));
+		} finally {
+			single.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package currycoin.script;
+
+import currycoin.Hash;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScriptStackTest {
+	// both edges of the small value cache, the byte length steps and the extremes
+	private static final int[] VALUES = {
+			-2, -1, 0, 1, 16, 17, 0x7f, 0x80, 0xff, 0x100, 0xffff, 0x1_0000, 0xff_ffff, 0x100_0000,
+			Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE + 1
+	};
+
+	/**
+	 * The shortest little endian encoding of the value, as unsigned.
+	 */
+	private static ByteArray encoding(int value) {
+		int length = 0;
+		while (length < 4 && value >>> (length * 8) != 0) {
+			length++;
+		}
+		byte[] data = new byte[length];
+		for (int i = 0; i < length; i++) {
+			data[i] = (byte) (value >>> (i * 8));
+		}
+		return new ByteArray(data);
+	}
+
+	private static ScriptStack stack() {
+		return new ScriptStack(Hash.empty());
+	}
+
+	@Test
+	void convertsIntsAtTheBoundaries() {
+		for (int value : VALUES) {
+			ByteArray bytes = ByteArray.fromInt(value);
+			assertEquals(encoding(value), bytes, "value " + value);
+			assertEquals(bytes.length(), ByteArray.intLength(value), "value " + value);
+			assertEquals(value, bytes.toInt(), "value " + value);
+			assertEquals(value != 0, bytes.asBoolean(), "value " + value);
+		}
+	}
+
+	@Test
+	void intSlotsReadLikeTheirBytes() throws ScriptException {
+		for (int value : VALUES) {
+			String message = "value " + value;
+			ScriptStack stack = stack();
+			stack.pushInt(value);
+			assertEquals(ByteArray.fromInt(value), stack.peek(), message);
+			assertEquals(ByteArray.fromInt(value), stack.peek(0), message);
+			assertEquals(ByteArray.intLength(value), stack.peekLength(), message);
+			assertEquals(value != 0, stack.peekBoolean(), message);
+
+			stack.copyToTop(0);
+			stack.push(ByteArray.fromInt(value));
+			assertEquals(value, stack.popInt(), message); // a byte slot as an int
+			assertEquals(ByteArray.fromInt(value), stack.pop(), message); // the copy
+			assertEquals(value, stack.popInt(), message);
+
+			stack.pushInt(value);
+			assertEquals(value != 0, stack.popBoolean(), message);
+			assertEquals(0, stack.depth());
+		}
+	}
+
+	@Test
+	void readsIntsFromLongerEncodings() throws ScriptException {
+		ScriptStack stack = stack();
+		stack.push(new ByteArray(new byte[] {0, 0}));
+		stack.push(new ByteArray(new byte[] {1, 0, 0, 0}));
+		assertEquals(1, stack.popInt());
+		assertFalse(stack.peekBoolean());
+		assertEquals(0, stack.popInt());
+
+		stack.push(new ByteArray(new byte[5]));
+		assertThrows(ScriptException.VerificationException.class, stack::popInt);
+	}
+
+	@Test
+	void copiesAndPeeksMixedSlots() throws ScriptException {
+		ByteArray bytes = new ByteArray(new byte[] {9, 9, 9});
+		ScriptStack stack = stack();
+		stack.push(bytes);
+		stack.pushInt(300);
+		stack.pushBoolean(true);
+
+		assertEquals(ByteArray.fromInt(1), stack.peek(0));
+		assertEquals(ByteArray.fromInt(300), stack.peek(1));
+		assertSame(bytes, stack.peek(2));
+
+		stack.copyToTop(2);
+		stack.copyToTop(2);
+		assertEquals(5, stack.depth());
+		assertEquals(300, stack.popInt());
+		assertSame(bytes, stack.pop());
+		assertTrue(stack.popBoolean());
+		assertEquals(ByteArray.fromInt(300), stack.pop());
+		assertSame(bytes, stack.pop());
+	}
+
+	@Test
+	void everyReadUnderflowsOnAnEmptyStack() throws ScriptException {
+		ScriptStack stack = stack();
+		List<Executable> reads = List.of(
+				stack::pop, stack::popInt, stack::popBoolean, stack::drop,
+				stack::peek, () -> stack.peek(0), () -> stack.peek(-1), stack::peekBoolean, stack::peekLength,
+				() -> stack.copyToTop(0), () -> stack.copyToTop(-1));
+		for (Executable read : reads) {
+			assertThrows(ScriptException.StackUnderflowException.class, read);
+		}
+
+		stack.pushInt(5);
+		assertThrows(ScriptException.StackUnderflowException.class, () -> stack.peek(1));
+		assertThrows(ScriptException.StackUnderflowException.class, () -> stack.copyToTop(1));
+		assertThrows(ScriptException.StackUnderflowException.class, () -> stack.peek(Integer.MIN_VALUE));
+		stack.drop();
+		for (Executable read : reads) {
+			assertThrows(ScriptException.StackUnderflowException.class, read);
+		}
+		assertEquals(0, stack.depth());
+	}
+}
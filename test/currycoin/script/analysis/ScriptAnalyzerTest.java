@@ -0,0 +1,41 @@
+package currycoin.script.analysis;
+
+import currycoin.Hash;
+import currycoin.script.ByteArray;
+import currycoin.script.Script;
+import currycoin.script.ScriptStack;
+import org.junit.jupiter.api.Test;
+
+import static currycoin.script.instructions.LoadInstruction.ofData;
+import static currycoin.script.instructions.OrdinaryInstruction.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScriptAnalyzerTest {
+	private static ByteArray bytes(int... values) {
+		byte[] data = new byte[values.length];
+		for (int i = 0; i < values.length; i++) {
+			data[i] = (byte) values[i];
+		}
+		return new ByteArray(data);
+	}
+
+	@Test
+	void copyItemWithUnknownIndexForgetsReorderedItems() {
+		// the index is 1 at runtime, so COPY_ITEM swaps the two items above the copy
+		Script script = Script.of(
+				ofData(bytes(5)),
+				ofData(bytes(1)),
+				ofData(bytes()),
+				ofData(bytes(1)),
+				ofData(bytes(1)),
+				BYTES_EQUAL,
+				ARITHMETIC_ADD_1,
+				COPY_ITEM,
+				DROP_ITEM,
+				VERIFY
+		);
+
+		assertDoesNotThrow(() -> script.execute(new ScriptStack(Hash.empty())));
+		assertFalse(ScriptAnalyzer.analyze(script).alwaysFails());
+	}
+}
@@ -0,0 +1,80 @@
+package currycoin.script.compiler;
+
+import currycoin.Hash;
+import currycoin.script.ByteArray;
+import currycoin.script.ExecutionLimits;
+import currycoin.script.Script;
+import currycoin.script.ScriptException;
+import currycoin.script.ScriptStack;
+import currycoin.script.SignatureVerifier;
+import currycoin.script.instructions.ConditionalBlock;
+import currycoin.script.instructions.Instruction;
+import currycoin.script.instructions.OrdinaryInstruction;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static currycoin.script.instructions.LoadInstruction.loadInt;
+import static currycoin.script.instructions.LoadInstruction.ofData;
+import static org.junit.jupiter.api.Assertions.*;
+
+/// Runs random scripts both interpreted and compiled, expecting the same failure or final stack.
+class CompiledScriptTest {
+	private static final OrdinaryInstruction[] ORDINARY = OrdinaryInstruction.values();
+
+	private final Random random = new Random(5);
+
+	@Test
+	void runsLikeTheInterpreter() {
+		for (int round = 0; round < 20_000; round++) {
+			Script script = new Script(instructions(0, 1 + random.nextInt(25)));
+			ExecutionLimits limits = random.nextInt(4) == 0
+					? new ExecutionLimits(random.nextInt(30), random.nextInt(3), random.nextInt(10), random.nextInt(100))
+					: ExecutionLimits.DEFAULT;
+
+			String interpreted = run(limits, stack -> script.execute(stack));
+			CompiledScript compiled = CompiledScript.compile(script);
+			assertEquals(interpreted, run(limits, compiled::execute), () -> script + " with " + limits);
+		}
+	}
+
+	private interface Execution {
+		void execute(ScriptStack stack) throws ScriptException;
+	}
+
+	/**
+	 * The final stack, or the type of exception the script failed with.
+	 */
+	private static String run(ExecutionLimits limits, Execution execution) {
+		ScriptStack stack = new ScriptStack(Hash.empty(), SignatureVerifier.sequential(), limits);
+		try {
+			execution.execute(stack);
+			return stack.toString();
+		} catch (ScriptException e) {
+			return e.getClass().getSimpleName();
+		}
+	}
+
+	private List<Instruction> instructions(int depth, int length) {
+		List<Instruction> instructions = new ArrayList<>(length);
+		for (int i = 0; i < length; i++) {
+			int kind = random.nextInt(20);
+			if (kind < 10) {
+				instructions.add(random.nextInt(10) == 0
+						? ofData(new ByteArray(new byte[random.nextInt(10)]))
+						: loadInt(random.nextInt(7) - 2));
+			} else if (kind < 12 && depth < 4) {
+				List<Instruction> whenTrue = instructions(depth + 1, random.nextInt(5));
+				List<Instruction> whenFalse = random.nextBoolean() ? List.of() : instructions(depth + 1, random.nextInt(5));
+				instructions.add(random.nextBoolean()
+						? new ConditionalBlock(whenTrue, whenFalse)
+						: new ConditionalBlock(whenFalse, whenTrue));
+			} else {
+				instructions.add(ORDINARY[random.nextInt(ORDINARY.length)]);
+			}
+		}
+		return instructions;
+	}
+}
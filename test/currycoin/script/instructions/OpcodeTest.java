@@ -0,0 +1,57 @@
+package currycoin.script.instructions;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpcodeTest {
+	private static final int FIRST_INVALID = OrdinaryInstruction.FIRST_OPCODE + OrdinaryInstruction.values().length;
+
+	private static Opcode.Kind expectedKind(int value) {
+		if (value <= LoadInstruction.MAX_NUM_BYTES) {
+			return Opcode.Kind.LOAD;
+		} else if (value == ConditionalBlock.IF_OPCODE) {
+			return Opcode.Kind.IF;
+		} else if (value == ConditionalBlock.NOT_IF_OPCODE) {
+			return Opcode.Kind.NOT_IF;
+		} else if (value == ConditionalBlock.ELSE_OPCODE) {
+			return Opcode.Kind.ELSE;
+		} else if (value == ConditionalBlock.ENDIF_OPCODE) {
+			return Opcode.Kind.ENDIF;
+		} else if (value < FIRST_INVALID) {
+			return Opcode.Kind.ORDINARY;
+		} else {
+			return Opcode.Kind.INVALID;
+		}
+	}
+
+	@Test
+	void decodesEveryByte() {
+		assertTrue(FIRST_INVALID < 256);
+		for (int value = 0; value < 256; value++) {
+			Opcode opcode = Opcode.of((byte) value);
+			assertEquals((byte) value, opcode.value(), "value " + value);
+			assertEquals(expectedKind(value), opcode.kind(), "kind of " + value);
+
+			switch (opcode.kind()) {
+				case LOAD -> assertEquals(value, opcode.operandLength());
+				case ORDINARY -> assertEquals(OrdinaryInstruction.values()[value - OrdinaryInstruction.FIRST_OPCODE], opcode.instruction());
+				default -> {
+					assertNull(opcode.instruction());
+					assertEquals(0, opcode.operandLength());
+				}
+			}
+		}
+		assertEquals(Opcode.Kind.INVALID, Opcode.of((byte) FIRST_INVALID).kind());
+	}
+
+	@Test
+	void ordinaryOpcodesRoundTrip() {
+		for (OrdinaryInstruction instruction : OrdinaryInstruction.values()) {
+			Opcode opcode = Opcode.of(instruction);
+			assertSame(instruction, opcode.instruction());
+			assertSame(opcode, Opcode.of(opcode.value()), instruction.name());
+			assertEquals(instruction.name(), opcode.mnemonic());
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package currycoin.script.instructions;
+
+import currycoin.Hash;
+import currycoin.script.ByteArray;
+import currycoin.script.ScriptException;
+import currycoin.script.ScriptStack;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static currycoin.script.instructions.OrdinaryInstruction.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrdinaryInstructionTest {
+	private static ScriptStack stack(int... items) throws ScriptException {
+		ScriptStack stack = new ScriptStack(Hash.empty());
+		for (int item : items) {
+			stack.pushInt(item);
+		}
+		return stack;
+	}
+
+	private static List<ByteArray> contents(ScriptStack stack) throws ScriptException {
+		List<ByteArray> items = new ArrayList<>();
+		for (int depth = stack.depth() - 1; depth >= 0; depth--) {
+			items.add(stack.peek(depth));
+		}
+		return items;
+	}
+
+	private static List<ByteArray> contents(int... items) {
+		List<ByteArray> list = new ArrayList<>();
+		for (int item : items) {
+			list.add(ByteArray.fromInt(item));
+		}
+		return list;
+	}
+
+	/**
+	 * COPY_ITEM and ROLL_ITEM as they were before their bounds were checked up front, popping the
+	 * items above the selected one as they went.
+	 */
+	private static void streamed(ScriptStack stack, boolean roll) throws ScriptException {
+		int index = stack.pop().toInt();
+		if (index < 0) {
+			throw new IllegalArgumentException("Negative index " + index);
+		}
+		List<ByteArray> removed = new ArrayList<>();
+		for (int i = 0; i < index; i++) {
+			removed.add(stack.pop());
+		}
+		ByteArray selected = roll ? stack.pop() : stack.peek();
+		for (ByteArray item : removed) {
+			stack.push(item);
+		}
+		stack.push(selected);
+	}
+
+	@Test
+	void copyItemCopiesTheItemAtTheIndex() throws ScriptException {
+		// the items above the selected one come back in reverse
+		ScriptStack stack = stack(10, 11, 12, 13, 2);
+		COPY_ITEM.execute(stack);
+		assertEquals(contents(10, 11, 13, 12, 11), contents(stack));
+
+		ScriptStack top = stack(10, 11, 0);
+		COPY_ITEM.execute(top);
+		assertEquals(contents(10, 11, 11), contents(top));
+	}
+
+	@Test
+	void rollItemMovesTheItemAtTheIndex() throws ScriptException {
+		ScriptStack stack = stack(10, 11, 12, 13, 2);
+		ROLL_ITEM.execute(stack);
+		assertEquals(contents(10, 13, 12, 11), contents(stack));
+
+		ScriptStack bottom = stack(10, 11, 12, 2);
+		ROLL_ITEM.execute(bottom);
+		assertEquals(contents(12, 11, 10), contents(bottom));
+	}
+
+	@Test
+	void rejectsIndicesOutsideTheStack() throws ScriptException {
+		for (OrdinaryInstruction instruction : List.of(COPY_ITEM, ROLL_ITEM)) {
+			for (int index : new int[] {3, 4, Integer.MAX_VALUE, -1, Integer.MIN_VALUE}) {
+				ScriptStack stack = stack(10, 11, 12, index);
+				assertThrows(ScriptException.StackUnderflowException.class, () -> instruction.execute(stack),
+						instruction + " " + index);
+				// nothing but the index was popped
+				assertEquals(contents(10, 11, 12), contents(stack));
+			}
+			assertThrows(ScriptException.StackUnderflowException.class, () -> instruction.execute(stack()));
+		}
+	}
+
+	@Test
+	void matchesStreamedPops() throws ScriptException {
+		Random random = new Random(18);
+		for (int run = 0; run < 2_000; run++) {
+			boolean roll = random.nextBoolean();
+			int[] items = new int[random.nextInt(8)];
+			for (int i = 0; i < items.length; i++) {
+				items[i] = random.nextInt(1000) - 500;
+			}
+			int index = random.nextInt(items.length + 4) - 2;
+
+			ScriptStack expected = stack(items);
+			expected.pushInt(index);
+			ScriptStack actual = stack(items);
+			actual.pushInt(index);
+
+			Class<? extends Exception> failure = null;
+			try {
+				streamed(expected, roll);
+			} catch (ScriptException.StackUnderflowException | IllegalArgumentException e) {
+				// a negative index now underflows too
+				failure = ScriptException.StackUnderflowException.class;
+			}
+
+			String message = (roll ? "ROLL_ITEM " : "COPY_ITEM ") + index + " on " + items.length;
+			OrdinaryInstruction instruction = roll ? ROLL_ITEM : COPY_ITEM;
+			if (failure != null) {
+				assertThrows(failure, () -> instruction.execute(actual), message);
+			} else {
+				instruction.execute(actual);
+				assertEquals(contents(expected), contents(actual), message);
+			}
+		}
+	}
+}
@@ -0,0 +1,175 @@
+package currycoin.script.instructions;
+
+import currycoin.script.ByteArray;
+import currycoin.script.Script;
+import currycoin.script.ScriptException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.List;
+
+import static currycoin.script.instructions.ConditionalBlock.*;
+import static currycoin.script.instructions.LoadInstruction.loadInt;
+import static currycoin.script.instructions.OrdinaryInstruction.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScriptParserTest {
+	private static final LoadInstruction DATA = LoadInstruction.ofData(new ByteArray(new byte[40]));
+
+	// loads, blocks with and without an ELSE part, and a block right after an ENDIF
+	private static final Script SCRIPT = Script.of(
+			loadInt(1000),
+			DATA,
+			new ConditionalBlock(List.of(PUSH_1, DATA), List.of(whenFalse(VERIFY), DATA)),
+			whenTrue(whenTrue(DUPLICATE_ITEM)),
+			whenFalse(NO_OPERATION),
+			new ConditionalBlock(List.of(DATA), List.of(PUSH_NEGATIVE_1)),
+			VERIFY);
+
+	/**
+	 * Feeds the encoding in chunks ending at the given offsets, and the rest as the last chunk.
+	 */
+	private static Script feed(byte[] encoded, int... ends) {
+		ScriptParser parser = new ScriptParser();
+		int start = 0;
+		for (int end : ends) {
+			parser.feed(ByteBuffer.wrap(encoded, start, end - start));
+			start = end;
+		}
+		parser.feed(ByteBuffer.wrap(encoded, start, encoded.length - start));
+		return parser.finish();
+	}
+
+	private static byte[] bytes(int... values) {
+		byte[] bytes = new byte[values.length];
+		for (int i = 0; i < values.length; i++) {
+			bytes[i] = (byte) values[i];
+		}
+		return bytes;
+	}
+
+	private static byte[] nested(int depth) {
+		byte[] encoded = new byte[2 * depth + 1];
+		Arrays.fill(encoded, 0, depth, IF_OPCODE);
+		encoded[depth] = Opcode.of(NO_OPERATION).value();
+		Arrays.fill(encoded, depth + 1, encoded.length, ENDIF_OPCODE);
+		return encoded;
+	}
+
+	@Test
+	void parsesItsEncoding() {
+		assertEquals(SCRIPT, ScriptParser.parse(SCRIPT.encoded()));
+	}
+
+	@Test
+	void parsesOneByteAtATime() {
+		byte[] encoded = SCRIPT.encoded().data();
+		ScriptParser parser = new ScriptParser();
+		for (byte b : encoded) {
+			parser.feed(ByteBuffer.wrap(new byte[] {b}));
+		}
+		assertEquals(SCRIPT, parser.finish());
+	}
+
+	@Test
+	void parsesTwoChunksSplitAnywhere() {
+		byte[] encoded = SCRIPT.encoded().data();
+		for (int split = 0; split <= encoded.length; split++) {
+			assertEquals(SCRIPT, feed(encoded, split), "split at " + split);
+		}
+	}
+
+	@Test
+	void waitsForTheByteAfterAnEndif() {
+		// IF PUSH_1 ENDIF | ELSE VERIFY ENDIF
+		byte[] withElse = bytes(IF_OPCODE, Opcode.of(PUSH_1).value(), ENDIF_OPCODE,
+				ELSE_OPCODE, Opcode.of(VERIFY).value(), ENDIF_OPCODE);
+		Script expected = Script.of(new ConditionalBlock(List.of(PUSH_1), List.of(VERIFY)));
+		assertEquals(expected, feed(withElse, 3));
+
+		// IF PUSH_1 ENDIF | VERIFY
+		byte[] withoutElse = bytes(IF_OPCODE, Opcode.of(PUSH_1).value(), ENDIF_OPCODE, Opcode.of(VERIFY).value());
+		assertEquals(Script.of(whenTrue(PUSH_1), VERIFY), feed(withoutElse, 3));
+
+		// IF PUSH_1 ENDIF, then the end
+		assertEquals(Script.of(whenTrue(PUSH_1)), feed(Arrays.copyOf(withoutElse, 3), 3));
+	}
+
+	@Test
+	void assignsTheBranchesOfNotif() {
+		// NOTIF PUSH_1 ENDIF ELSE PUSH_NEGATIVE_1 ENDIF
+		byte[] encoded = bytes(NOT_IF_OPCODE, Opcode.of(PUSH_1).value(), ENDIF_OPCODE,
+				ELSE_OPCODE, Opcode.of(PUSH_NEGATIVE_1).value(), ENDIF_OPCODE);
+		Script expected = Script.of(new ConditionalBlock(List.of(PUSH_NEGATIVE_1), List.of(PUSH_1)));
+		assertEquals(expected, ScriptParser.parse(new ByteArray(encoded)));
+		assertEquals(expected, feed(encoded, 1, 2, 3, 4, 5));
+
+		// NOTIF PUSH_1 ENDIF
+		Script notIf = ScriptParser.parse(new ByteArray(bytes(NOT_IF_OPCODE, Opcode.of(PUSH_1).value(), ENDIF_OPCODE)));
+		assertEquals(Script.of(whenFalse(PUSH_1)), notIf);
+	}
+
+	@Test
+	void rejectsEveryTruncation() {
+		// every proper prefix but the one ending before the ELSE ends inside the block or its data
+		byte[] encoded = Script.of(new ConditionalBlock(List.of(DATA), List.of(PUSH_1))).encoded().data();
+		int firstPart = whenTrue(DATA).byteSize();
+		assertEquals(Script.of(whenTrue(DATA)), ScriptParser.parse(new ByteArray(Arrays.copyOf(encoded, firstPart))));
+		for (int length = 1; length < encoded.length; length++) {
+			if (length == firstPart) {
+				continue;
+			}
+			byte[] prefix = Arrays.copyOf(encoded, length);
+			assertThrows(ScriptException.InvalidScriptException.class,
+					() -> ScriptParser.parse(new ByteArray(prefix)), "length " + length);
+			assertThrows(ScriptException.InvalidScriptException.class,
+					() -> feed(prefix, prefix.length / 2), "length " + length);
+		}
+	}
+
+	@Test
+	void rejectsMisplacedControlOpcodes() {
+		for (byte[] encoded : List.of(bytes(ELSE_OPCODE), bytes(ENDIF_OPCODE),
+				bytes(IF_OPCODE, ENDIF_OPCODE, ELSE_OPCODE, ENDIF_OPCODE, ELSE_OPCODE, ENDIF_OPCODE))) {
+			assertThrows(ScriptException.InvalidScriptException.class, () -> ScriptParser.parse(new ByteArray(encoded)));
+		}
+	}
+
+	@Test
+	void limitsTheDepth() {
+		byte[] deepest = nested(ScriptParser.MAX_DEPTH);
+		Script script = ScriptParser.parse(new ByteArray(deepest));
+		assertEquals(deepest.length, script.byteSize());
+		assertEquals(script, feed(deepest, ScriptParser.MAX_DEPTH));
+
+		byte[] tooDeep = nested(ScriptParser.MAX_DEPTH + 1);
+		assertThrows(ScriptException.InvalidScriptException.class, () -> ScriptParser.parse(new ByteArray(tooDeep)));
+		assertThrows(ScriptException.InvalidScriptException.class, () -> feed(tooDeep, 1, 2, 3));
+	}
+
+	@Test
+	void readsExactlyTheLength() throws IOException {
+		byte[] encoded = SCRIPT.encoded().data();
+		byte[] followed = Arrays.copyOf(encoded, encoded.length + 1);
+		followed[encoded.length] = Opcode.of(RETURN_FAIL).value();
+
+		ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream(followed));
+		assertEquals(SCRIPT, ScriptParser.read(channel, encoded.length));
+		assertEquals(Script.of(RETURN_FAIL), ScriptParser.read(channel, 1));
+	}
+
+	@Test
+	void readRejectsShortChannelsAndNegativeLengths() {
+		byte[] encoded = SCRIPT.encoded().data();
+		assertThrows(EOFException.class,
+				() -> ScriptParser.read(Channels.newChannel(new ByteArrayInputStream(encoded)), encoded.length + 1));
+		assertThrows(ScriptException.InvalidScriptException.class,
+				() -> ScriptParser.read(Channels.newChannel(new ByteArrayInputStream(encoded)), -1));
+	}
+}
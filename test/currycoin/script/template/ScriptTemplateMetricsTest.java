@@ -0,0 +1,78 @@
+package currycoin.script.template;
+
+import currycoin.Hash;
+import currycoin.TransactionInput;
+import currycoin.script.ByteArray;
+import currycoin.script.Script;
+import currycoin.script.instructions.Instruction;
+import currycoin.script.metrics.ScriptMetrics;
+import currycoin.script.metrics.ScriptMetricsMXBean;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static currycoin.script.instructions.LoadInstruction.ofData;
+import static currycoin.script.instructions.OrdinaryInstruction.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/// Scripts of a template shape still have their opcodes counted and timed.
+@Tag("metrics")
+class ScriptTemplateMetricsTest {
+	private static final ByteArray PREIMAGE = new ByteArray("preimage".getBytes());
+
+	private final ScriptMetricsMXBean metrics = ScriptMetrics.get();
+
+	@BeforeEach
+	void reset() {
+		assertTrue(metrics.isEnabled());
+		metrics.reset();
+	}
+
+	private static ByteArray sha256(ByteArray data) throws NoSuchAlgorithmException {
+		return new ByteArray(MessageDigest.getInstance("SHA-256").digest(data.data()));
+	}
+
+	private static boolean unlocks(List<Instruction> instructions) {
+		assertTrue(ScriptTemplate.recognize(Script.of(), new Script(instructions)).isPresent());
+		return new TransactionInput(Hash.empty(), 0, Script.of(), new Script(instructions)).unlocks(Hash.empty());
+	}
+
+	@Test
+	void recordsHashLock() throws NoSuchAlgorithmException {
+		assertTrue(unlocks(List.of(ofData(PREIMAGE), HASH_SHA256, ofData(sha256(PREIMAGE)), VERIFY_BYTES_EQUAL)));
+
+		Map<String, Long> invocations = metrics.getInvocations();
+		assertEquals(2, invocations.get("LOAD"));
+		assertEquals(1, invocations.get(HASH_SHA256.name()));
+		assertEquals(1, invocations.get(VERIFY_BYTES_EQUAL.name()));
+		assertEquals(1, Arrays.stream(metrics.getLatencyHistograms().get(HASH_SHA256.name())).sum());
+		assertEquals(1, metrics.getScriptsPassed());
+	}
+
+	@Test
+	void recordsPayToPublicKeyHash() throws NoSuchAlgorithmException {
+		ByteArray publicKey = new ByteArray(new byte[] {1, 2, 3});
+		assertFalse(unlocks(List.of(ofData(PREIMAGE), ofData(publicKey), DUPLICATE_ITEM, HASH_SHA256,
+				ofData(sha256(publicKey)), VERIFY_BYTES_EQUAL, SIGNATURE_CHECK_VERIFY)));
+
+		Map<String, Long> invocations = metrics.getInvocations();
+		assertEquals(3, invocations.get("LOAD"));
+		assertEquals(1, invocations.get(DUPLICATE_ITEM.name()));
+		assertEquals(1, invocations.get(HASH_SHA256.name()));
+		assertEquals(1, invocations.get(SIGNATURE_CHECK_VERIFY.name()));
+		assertEquals(1, metrics.getScriptsFailed());
+	}
+
+	@Test
+	void recordsPayToPublicKey() {
+		assertFalse(unlocks(List.of(ofData(PREIMAGE), ofData(PREIMAGE), SIGNATURE_CHECK_VERIFY)));
+		assertEquals(1, metrics.getInvocations().get(SIGNATURE_CHECK_VERIFY.name()));
+		assertEquals(1, metrics.getScriptsFailed());
+	}
+}
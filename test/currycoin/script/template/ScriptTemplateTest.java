@@ -0,0 +1,182 @@
+package currycoin.script.template;
+
+import currycoin.Hash;
+import currycoin.TransactionInput;
+import currycoin.script.ByteArray;
+import currycoin.script.ExecutionLimits;
+import currycoin.script.Script;
+import currycoin.script.ScriptException;
+import currycoin.script.ScriptStack;
+import currycoin.script.SignatureVerifier;
+import currycoin.script.instructions.Instruction;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.Signature;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongFunction;
+import java.util.stream.Stream;
+
+import static currycoin.script.instructions.LoadInstruction.ofData;
+import static currycoin.script.instructions.OrdinaryInstruction.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/// Runs every template against the interpreter, for every split of its instructions between the
+/// locking and the unlocking script, and with limits right at and just below what the scripts use.
+class ScriptTemplateTest {
+	private static final Hash DATA_TO_SIGN = new Hash(sha256("data to sign".getBytes()));
+
+	private static ByteArray publicKey;
+	private static ByteArray otherPublicKey;
+	private static ByteArray signature;
+
+	@BeforeAll
+	static void sign() throws GeneralSecurityException {
+		KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+		generator.initialize(256);
+		KeyPair pair = generator.generateKeyPair();
+		publicKey = new ByteArray(pair.getPublic().getEncoded());
+		otherPublicKey = new ByteArray(generator.generateKeyPair().getPublic().getEncoded());
+
+		Signature ecdsa = Signature.getInstance("SHA256withECDSA");
+		ecdsa.initSign(pair.getPrivate());
+		ecdsa.update(DATA_TO_SIGN.data());
+		signature = new ByteArray(ecdsa.sign());
+	}
+
+	private static byte[] sha256(byte[] data) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(data);
+		} catch (GeneralSecurityException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	private static ByteArray sha256(ByteArray data) {
+		return new ByteArray(sha256(data.data()));
+	}
+
+	static Stream<Arguments> scripts() {
+		ByteArray preimage = new ByteArray("preimage".getBytes());
+		ByteArray hash = sha256(preimage);
+		ByteArray hashTwice = sha256(hash);
+		byte[] wrongHash = hash.data();
+		wrongHash[0]++;
+
+		return Stream.of(
+				Arguments.of("P2PK", List.of(ofData(signature), ofData(publicKey), SIGNATURE_CHECK_VERIFY)),
+				Arguments.of("P2PK with the wrong key", List.of(ofData(signature), ofData(otherPublicKey), SIGNATURE_CHECK_VERIFY)),
+				Arguments.of("P2PK with a malformed key", List.of(ofData(signature), ofData(preimage), SIGNATURE_CHECK_VERIFY)),
+				Arguments.of("P2PKH", List.of(ofData(signature), ofData(publicKey), DUPLICATE_ITEM, HASH_SHA256,
+						ofData(sha256(publicKey)), VERIFY_BYTES_EQUAL, SIGNATURE_CHECK_VERIFY)),
+				Arguments.of("P2PKH with the wrong hash", List.of(ofData(signature), ofData(publicKey), DUPLICATE_ITEM, HASH_SHA256,
+						ofData(sha256(otherPublicKey)), VERIFY_BYTES_EQUAL, SIGNATURE_CHECK_VERIFY)),
+				Arguments.of("P2PKH with the wrong key", List.of(ofData(signature), ofData(otherPublicKey), DUPLICATE_ITEM, HASH_SHA256,
+						ofData(sha256(otherPublicKey)), VERIFY_BYTES_EQUAL, SIGNATURE_CHECK_VERIFY)),
+				Arguments.of("HashLock", List.of(ofData(preimage), HASH_SHA256, ofData(hash), VERIFY_BYTES_EQUAL)),
+				Arguments.of("HashLock hashing twice", List.of(ofData(preimage), HASH_TWICE_SHA256, ofData(hashTwice), VERIFY_BYTES_EQUAL)),
+				Arguments.of("HashLock with the wrong hash", List.of(ofData(preimage), HASH_SHA256, ofData(new ByteArray(wrongHash)), VERIFY_BYTES_EQUAL)),
+				Arguments.of("HashLock hashing once too few", List.of(ofData(preimage), HASH_TWICE_SHA256, ofData(hash), VERIFY_BYTES_EQUAL)),
+				Arguments.of("HashLock with a short hash", List.of(ofData(preimage), HASH_SHA256,
+						ofData(new ByteArray(Arrays.copyOf(hash.data(), 31))), VERIFY_BYTES_EQUAL)),
+				Arguments.of("HashLock with an empty preimage", List.of(ofData(new ByteArray(new byte[0])), HASH_SHA256,
+						ofData(sha256(new ByteArray(new byte[0]))), VERIFY_BYTES_EQUAL))
+		);
+	}
+
+	@ParameterizedTest(name = "{0}")
+	@MethodSource("scripts")
+	void runsLikeTheInterpreter(String name, List<Instruction> instructions) {
+		assertSameOutcome(instructions, ExecutionLimits.DEFAULT);
+		assertSameOutcome(instructions, ExecutionLimits.UNLIMITED);
+
+		long instructionPeak = peak(instructions, limit -> new ExecutionLimits((int) limit, Integer.MAX_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE));
+		long signaturePeak = peak(instructions, limit -> new ExecutionLimits(Integer.MAX_VALUE, (int) limit, Integer.MAX_VALUE, Long.MAX_VALUE));
+		long depthPeak = peak(instructions, limit -> new ExecutionLimits(Integer.MAX_VALUE, Integer.MAX_VALUE, (int) limit, Long.MAX_VALUE));
+		long bytesPeak = peak(instructions, limit -> new ExecutionLimits(Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, limit));
+
+		ExecutionLimits peaks = new ExecutionLimits((int) instructionPeak, (int) signaturePeak, (int) depthPeak, bytesPeak);
+		assertSameOutcome(instructions, peaks);
+		assertEquals(interpret(instructions, ExecutionLimits.UNLIMITED), interpret(instructions, peaks));
+
+		if (instructionPeak > 0) {
+			assertBelowPeak(instructions, new ExecutionLimits((int) instructionPeak - 1, (int) signaturePeak, (int) depthPeak, bytesPeak));
+		}
+		if (signaturePeak > 0) {
+			assertBelowPeak(instructions, new ExecutionLimits((int) instructionPeak, (int) signaturePeak - 1, (int) depthPeak, bytesPeak));
+		}
+		if (depthPeak > 0) {
+			assertBelowPeak(instructions, new ExecutionLimits((int) instructionPeak, (int) signaturePeak, (int) depthPeak - 1, bytesPeak));
+		}
+		if (bytesPeak > 0) {
+			assertBelowPeak(instructions, new ExecutionLimits((int) instructionPeak, (int) signaturePeak, (int) depthPeak, bytesPeak - 1));
+		}
+	}
+
+	private static void assertBelowPeak(List<Instruction> instructions, ExecutionLimits limits) {
+		assertFalse(interpret(instructions, limits), () -> "passes with " + limits);
+		assertSameOutcome(instructions, limits);
+	}
+
+	private static void assertSameOutcome(List<Instruction> instructions, ExecutionLimits limits) {
+		boolean expected = interpret(instructions, limits);
+		for (int split = 0; split <= instructions.size(); split++) {
+			Script lockingScript = new Script(instructions.subList(0, split));
+			Script unlockingScript = new Script(instructions.subList(split, instructions.size()));
+			String description = lockingScript + " | " + unlockingScript + " with " + limits;
+
+			ScriptTemplate template = ScriptTemplate.recognize(lockingScript, unlockingScript)
+					.orElseThrow(() -> new AssertionError("Not recognized: " + description));
+			boolean passed;
+			try {
+				passed = template.run(DATA_TO_SIGN, SignatureVerifier.sequential(), limits);
+			} catch (ScriptException e) {
+				passed = false;
+			}
+			assertEquals(expected, passed, description);
+
+			TransactionInput input = new TransactionInput(DATA_TO_SIGN, 0, lockingScript, unlockingScript);
+			assertEquals(expected, input.unlocks(DATA_TO_SIGN, SignatureVerifier.sequential(), limits), description);
+		}
+	}
+
+	private static boolean interpret(List<Instruction> instructions, ExecutionLimits limits) {
+		return outcome(instructions, limits) == null;
+	}
+
+	/**
+	 * Runs the instructions as a single script, returning what they failed with, if anything.
+	 */
+	private static ScriptException outcome(List<Instruction> instructions, ExecutionLimits limits) {
+		try {
+			new Script(instructions).execute(new ScriptStack(DATA_TO_SIGN, SignatureVerifier.sequential(), limits));
+			return null;
+		} catch (ScriptException e) {
+			return e;
+		}
+	}
+
+	/**
+	 * Finds the smallest limit the instructions run within, however else they end.
+	 */
+	private static long peak(List<Instruction> instructions, LongFunction<ExecutionLimits> limits) {
+		long low = 0;
+		long high = 1 << 20;
+		while (low < high) {
+			long middle = (low + high) >>> 1;
+			if (outcome(instructions, limits.apply(middle)) instanceof ScriptException.BudgetExceededException) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+}
@@ -0,0 +1,163 @@
+package currycoin.store;
+
+import currycoin.BlockHeader;
+import currycoin.Hash;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockStoreTest {
+	// a few blocks per segment
+	private static final long SEGMENT_SIZE = 512;
+
+	@TempDir
+	Path directory;
+
+	private static BlockHeader header(int nonce) {
+		return new BlockHeader(Hash.empty(), Hash.empty(), nonce);
+	}
+
+	private static ByteBuffer body(int nonce, int length) {
+		ByteBuffer body = ByteBuffer.allocate(length);
+		for (int i = 0; i < length; i++) {
+			body.put((byte) (nonce + i));
+		}
+		return body.flip();
+	}
+
+	private BlockStore open() throws IOException {
+		return BlockStore.open(directory, SEGMENT_SIZE);
+	}
+
+	private static List<Hash> appendAll(BlockStore store, int from, int to) throws IOException {
+		List<Hash> hashes = new ArrayList<>();
+		for (int nonce = from; nonce < to; nonce++) {
+			hashes.add(store.append(header(nonce), body(nonce, 100)));
+		}
+		return hashes;
+	}
+
+	private static void assertStored(BlockStore store, Hash hash, int nonce) {
+		StoredBlock block = store.get(hash).orElseThrow();
+		assertEquals(header(nonce), block.header());
+		assertEquals(body(nonce, 100), block.body());
+		assertEquals(Optional.of(header(nonce)), store.header(hash));
+	}
+
+	@Test
+	void readsAppendedBlocks() throws IOException {
+		try (BlockStore store = open()) {
+			ByteBuffer body = body(1, 100);
+			Hash hash = store.append(header(1), body);
+			assertEquals(header(1).hash(), hash);
+			assertEquals(100, body.remaining());
+			assertTrue(store.contains(hash));
+			assertEquals(1, store.size());
+			assertStored(store, hash, 1);
+			assertTrue(store.get(hash).orElseThrow().body().isReadOnly());
+
+			assertThrows(IllegalArgumentException.class, () -> store.append(header(1), body(2, 10)));
+			assertEquals(Optional.empty(), store.get(header(2).hash()));
+			assertEquals(1, store.size());
+
+			// empty bodies, and bodies larger than a segment
+			Hash empty = store.append(header(3), ByteBuffer.allocate(0));
+			assertEquals(0, store.get(empty).orElseThrow().body().remaining());
+			Hash large = store.append(header(4), body(4, 2000));
+			assertEquals(body(4, 2000), store.get(large).orElseThrow().body());
+		}
+	}
+
+	@Test
+	void replaysTheIndexOnReopen() throws IOException {
+		List<Hash> hashes;
+		try (BlockStore store = open()) {
+			hashes = appendAll(store, 0, 20);
+		}
+		try (Stream<Path> files = Files.list(directory)) {
+			assertTrue(files.filter(file -> file.getFileName().toString().startsWith("blocks-")).count() > 1);
+		}
+
+		try (BlockStore store = open()) {
+			assertEquals(20, store.size());
+			for (int nonce = 0; nonce < 20; nonce++) {
+				assertStored(store, hashes.get(nonce), nonce);
+			}
+			hashes.addAll(appendAll(store, 20, 30));
+		}
+
+		try (BlockStore store = open()) {
+			assertEquals(30, store.size());
+			for (int nonce = 0; nonce < 30; nonce++) {
+				assertStored(store, hashes.get(nonce), nonce);
+			}
+		}
+	}
+
+	@Test
+	void dropsATornIndexEntry() throws IOException {
+		List<Hash> hashes;
+		try (BlockStore store = open()) {
+			hashes = appendAll(store, 0, 5);
+		}
+		try (FileChannel index = FileChannel.open(directory.resolve("index.dat"), StandardOpenOption.WRITE)) {
+			index.truncate(index.size() - 3);
+		}
+
+		try (BlockStore store = open()) {
+			assertEquals(4, store.size());
+			assertFalse(store.contains(hashes.get(4)));
+			for (int nonce = 0; nonce < 4; nonce++) {
+				assertStored(store, hashes.get(nonce), nonce);
+			}
+
+			// the lost block is written again over its own bytes
+			Hash hash = store.append(header(4), body(4, 100));
+			assertStored(store, hash, 4);
+			Hash next = store.append(header(5), body(5, 100));
+			assertStored(store, next, 5);
+		}
+		try (BlockStore store = open()) {
+			assertEquals(6, store.size());
+			for (int nonce = 0; nonce < 6; nonce++) {
+				assertStored(store, header(nonce).hash(), nonce);
+			}
+		}
+	}
+
+	@Test
+	void refusesToOpenWithAMissingSegment() throws IOException {
+		try (BlockStore store = open()) {
+			appendAll(store, 0, 20);
+		}
+		Path segment = directory.resolve("blocks-00001.dat");
+		assertTrue(Files.exists(segment));
+		Files.delete(segment);
+
+		assertThrows(IOException.class, this::open);
+		assertFalse(Files.exists(segment));
+	}
+
+	@Test
+	void refusesToOpenWithATruncatedSegment() throws IOException {
+		try (BlockStore store = open()) {
+			appendAll(store, 0, 3);
+		}
+		try (FileChannel segment = FileChannel.open(directory.resolve("blocks-00000.dat"), StandardOpenOption.WRITE)) {
+			segment.truncate(150);
+		}
+		assertThrows(IOException.class, this::open);
+	}
+}
@@ -0,0 +1,174 @@
+package currycoin.utxo;
+
+import currycoin.Hash;
+import currycoin.OutPoint;
+import currycoin.TransactionOutput;
+import currycoin.script.Script;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static currycoin.script.instructions.OrdinaryInstruction.PUSH_1;
+import static org.junit.jupiter.api.Assertions.*;
+
+class UtxoSetTest {
+	// past three quarters of the smallest table, so adding them rehashes at least once
+	private static final int MANY = 2_000;
+
+	@TempDir
+	Path directory;
+
+	private static OutPoint outPoint(int transaction, int index) {
+		byte[] data = new byte[32];
+		ByteBuffer.wrap(data).putInt(transaction);
+		return new OutPoint(new Hash(data), index);
+	}
+
+	private static TransactionOutput output(long value) {
+		return new TransactionOutput(value, new TransactionOutput.ScriptMatch(Script.of(PUSH_1)));
+	}
+
+	// no cache, so every lookup goes through the files
+	private UtxoSet open() throws IOException {
+		return UtxoSet.open(directory, 0);
+	}
+
+	private long valuesSize() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(file -> file.getFileName().toString().startsWith("values"))
+					.mapToLong(file -> file.toFile().length())
+					.sum();
+		}
+	}
+
+	@Test
+	void addsAndSpends() throws IOException {
+		try (UtxoSet set = open()) {
+			set.add(outPoint(1, 0), output(10));
+			set.add(outPoint(1, 1), output(11));
+			assertEquals(Optional.of(output(10)), set.get(outPoint(1, 0)));
+			assertEquals(2, set.size());
+
+			set.spend(outPoint(1, 0));
+			assertFalse(set.contains(outPoint(1, 0)));
+			assertEquals(Optional.empty(), set.get(outPoint(1, 0)));
+			assertEquals(Optional.of(output(11)), set.get(outPoint(1, 1)));
+			assertEquals(1, set.size());
+		}
+	}
+
+	@Test
+	void rejectsBatchesAsAWhole() throws IOException {
+		try (UtxoSet set = open()) {
+			set.add(outPoint(1, 0), output(10));
+
+			assertThrows(NoSuchElementException.class,
+					() -> set.batch().add(outPoint(2, 0), output(20)).spend(outPoint(3, 0)).commit());
+			assertThrows(IllegalArgumentException.class,
+					() -> set.batch().spend(outPoint(1, 0)).add(outPoint(1, 0), output(10)).add(outPoint(1, 0), output(10)));
+			assertThrows(IllegalArgumentException.class,
+					() -> set.batch().add(outPoint(2, 0), output(20)).add(outPoint(1, 0), output(10)).commit());
+
+			assertFalse(set.contains(outPoint(2, 0)));
+			assertTrue(set.contains(outPoint(1, 0)));
+			assertEquals(1, set.size());
+		}
+	}
+
+	@Test
+	void survivesRehashAndReopen() throws IOException {
+		try (UtxoSet set = open()) {
+			for (int i = 0; i < MANY; i++) {
+				set.add(outPoint(i, i % 3), output(i));
+			}
+			for (int i = 0; i < MANY; i += 2) {
+				set.spend(outPoint(i, i % 3));
+			}
+		}
+
+		try (UtxoSet set = open()) {
+			assertEquals(MANY / 2, set.size());
+			for (int i = 0; i < MANY; i++) {
+				Optional<TransactionOutput> expected = i % 2 == 0 ? Optional.empty() : Optional.of(output(i));
+				assertEquals(expected, set.get(outPoint(i, i % 3)), "output " + i);
+			}
+
+			// a spent out point may be added again, reusing its tombstone
+			set.add(outPoint(0, 0), output(-1));
+			assertEquals(Optional.of(output(-1)), set.get(outPoint(0, 0)));
+		}
+	}
+
+	@Test
+	void compactsSpentOutputs() throws IOException {
+		long full;
+		try (UtxoSet set = open()) {
+			UtxoSet.Batch batch = set.batch();
+			for (int i = 0; i < MANY; i++) {
+				batch.add(outPoint(i, 0), output(i));
+			}
+			batch.commit();
+			full = valuesSize();
+
+			UtxoSet.Batch spends = set.batch();
+			for (int i = 10; i < MANY; i++) {
+				spends.spend(outPoint(i, 0));
+			}
+			spends.commit();
+			assertEquals(full, valuesSize());
+
+			set.compact();
+			assertTrue(valuesSize() < full / 100, "values left: " + valuesSize());
+			for (int i = 0; i < 10; i++) {
+				assertEquals(Optional.of(output(i)), set.get(outPoint(i, 0)));
+			}
+			set.add(outPoint(MANY, 0), output(MANY));
+		}
+
+		try (UtxoSet set = open()) {
+			assertEquals(11, set.size());
+			for (int i = 0; i < 10; i++) {
+				assertEquals(Optional.of(output(i)), set.get(outPoint(i, 0)));
+			}
+			assertEquals(Optional.of(output(MANY)), set.get(outPoint(MANY, 0)));
+			assertFalse(set.contains(outPoint(10, 0)));
+		}
+	}
+
+	@Test
+	void spreadsOutPointsOfOneTransaction() throws IOException {
+		// every key shares its transaction hash, so only the index tells them apart
+		try (UtxoSet set = open()) {
+			for (int i = 0; i < MANY; i++) {
+				set.add(outPoint(7, i), output(i));
+			}
+		}
+		try (UtxoSet set = open()) {
+			for (int i = 0; i < MANY; i++) {
+				assertEquals(Optional.of(output(i)), set.get(outPoint(7, i)));
+			}
+		}
+	}
+
+	@Test
+	void dropsFilesOfAnInterruptedRehash() throws IOException {
+		try (UtxoSet set = open()) {
+			set.add(outPoint(1, 0), output(10));
+		}
+		Files.write(directory.resolve("values-99.dat"), new byte[100]);
+		Files.write(directory.resolve("index.dat.tmp"), new byte[100]);
+
+		try (UtxoSet set = open()) {
+			assertEquals(Optional.of(output(10)), set.get(outPoint(1, 0)));
+		}
+		assertFalse(Files.exists(directory.resolve("values-99.dat")));
+		assertFalse(Files.exists(directory.resolve("index.dat.tmp")));
+	}
+}
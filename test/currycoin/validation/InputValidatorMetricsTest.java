@@ -0,0 +1,47 @@
+package currycoin.validation;
+
+import currycoin.script.metrics.ScriptMetrics;
+import currycoin.script.metrics.ScriptMetricsMXBean;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static currycoin.validation.InputValidatorTest.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("metrics")
+class InputValidatorMetricsTest {
+	private final ScriptMetricsMXBean metrics = ScriptMetrics.get();
+
+	@BeforeEach
+	void reset() {
+		assertTrue(metrics.isEnabled());
+		metrics.reset();
+	}
+
+	@Test
+	void blockRecordsScriptsOnceTheirSignaturesAreVerified() throws InterruptedException {
+		List<InputCheck> checks = List.of(payToPublicKey(SIGNATURE), payToPublicKey(OTHER_SIGNATURE));
+		new InputValidator(IN_ORDER).validateBlock(checks);
+		assertEquals(1, metrics.getScriptsPassed());
+		assertEquals(1, metrics.getScriptsFailed());
+	}
+
+	@Test
+	void blockDoesNotRecordUnverifiedScripts() throws InterruptedException {
+		List<InputCheck> checks = List.of(payToPublicKey(OTHER_SIGNATURE), failing());
+		new InputValidator(IN_ORDER).validateBlock(checks);
+		assertEquals(0, metrics.getScriptsPassed());
+		assertEquals(1, metrics.getScriptsFailed());
+	}
+
+	@Test
+	void validateRecordsEveryScript() throws InterruptedException {
+		List<InputCheck> checks = List.of(payToPublicKey(SIGNATURE), passing(), payToPublicKey(OTHER_SIGNATURE));
+		new InputValidator(IN_ORDER).validate(checks);
+		assertEquals(2, metrics.getScriptsPassed());
+		assertEquals(1, metrics.getScriptsFailed());
+	}
+}
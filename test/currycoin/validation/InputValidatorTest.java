@@ -0,0 +1,162 @@
+package currycoin.validation;
+
+import currycoin.Hash;
+import currycoin.TransactionInput;
+import currycoin.script.ByteArray;
+import currycoin.script.Script;
+import currycoin.script.SignatureVerifier;
+import org.junit.jupiter.api.Test;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import static currycoin.script.instructions.LoadInstruction.ofData;
+import static currycoin.script.instructions.OrdinaryInstruction.*;
+import static currycoin.validation.InputResult.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class InputValidatorTest {
+	private static final Hash DATA_TO_SIGN = Hash.empty();
+	// runs every task right away, so inputs and signature chunks go in order
+	static final Executor IN_ORDER = Runnable::run;
+
+	private static final KeyPair PAIR = generate();
+	private static final ByteArray PUBLIC_KEY = new ByteArray(PAIR.getPublic().getEncoded());
+	static final ByteArray SIGNATURE = sign(PAIR);
+	static final ByteArray OTHER_SIGNATURE = sign(generate());
+
+	private static KeyPair generate() {
+		try {
+			KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+			generator.initialize(256);
+			return generator.generateKeyPair();
+		} catch (GeneralSecurityException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	private static ByteArray sign(KeyPair pair) {
+		try {
+			Signature ecdsa = Signature.getInstance("SHA256withECDSA");
+			ecdsa.initSign(pair.getPrivate());
+			ecdsa.update(DATA_TO_SIGN.data());
+			return new ByteArray(ecdsa.sign());
+		} catch (GeneralSecurityException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	static InputCheck payToPublicKey(ByteArray signature) {
+		Script unlockingScript = Script.of(ofData(signature), ofData(PUBLIC_KEY), SIGNATURE_CHECK_VERIFY);
+		return new InputCheck(new TransactionInput(Hash.empty(), 0, Script.of(), unlockingScript), DATA_TO_SIGN);
+	}
+
+	static InputCheck failing() {
+		return new InputCheck(new TransactionInput(Hash.empty(), 0, Script.of(), Script.of(RETURN_FAIL)), DATA_TO_SIGN);
+	}
+
+	static InputCheck passing() {
+		return new InputCheck(new TransactionInput(Hash.empty(), 0, Script.of(), Script.of(PUSH_1, VERIFY)), DATA_TO_SIGN);
+	}
+
+	/**
+	 * An executor that holds the tasks until it has the given number, then runs them last first
+	 * on a thread of its own.
+	 */
+	private static Executor lastFirst(int tasks) {
+		Deque<Runnable> queued = new ArrayDeque<>();
+		return task -> {
+			queued.push(task);
+			if (queued.size() == tasks) {
+				Thread.ofPlatform().start(() -> queued.forEach(Runnable::run));
+			}
+		};
+	}
+
+	@Test
+	void skipsInputsAfterAFailure() throws InterruptedException {
+		List<InputCheck> checks = List.of(passing(), failing(), passing(), payToPublicKey(SIGNATURE));
+		ValidationResult result = new InputValidator(IN_ORDER).validate(checks);
+		assertEquals(List.of(VALID, INVALID, CANCELLED, CANCELLED), result.results());
+		assertEquals(1, result.firstInvalid());
+		assertFalse(result.allValid());
+	}
+
+	@Test
+	void reportsResultsInInputOrder() throws InterruptedException {
+		// the failing input runs last, so nothing is skipped
+		List<InputCheck> lastToFail = List.of(failing(), passing(), payToPublicKey(SIGNATURE));
+		assertEquals(List.of(INVALID, VALID, VALID), new InputValidator(lastFirst(3)).validate(lastToFail).results());
+
+		// the failing input runs first, so the others are skipped
+		List<InputCheck> firstToFail = List.of(passing(), payToPublicKey(SIGNATURE), failing());
+		assertEquals(List.of(CANCELLED, CANCELLED, INVALID), new InputValidator(lastFirst(3)).validate(firstToFail).results());
+	}
+
+	@Test
+	void validatesOnAPool() throws InterruptedException {
+		List<InputCheck> checks = new ArrayList<>();
+		for (int i = 0; i < 64; i++) {
+			checks.add(i % 2 == 0 ? passing() : payToPublicKey(SIGNATURE));
+		}
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			assertTrue(new InputValidator(pool).validate(checks).allValid());
+			assertTrue(new InputValidator(pool).validateBlock(checks).allValid());
+
+			checks.set(40, failing());
+			ValidationResult result = new InputValidator(pool).validate(checks);
+			assertEquals(40, result.firstInvalid());
+			assertEquals(1, result.results().stream().filter(INVALID::equals).count());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	void failsTheBatchOnUnexpectedErrors() {
+		IllegalStateException bug = new IllegalStateException("bug");
+		SignatureVerifier broken = (signature, publicKey, hash) -> {
+			throw bug;
+		};
+		List<InputCheck> checks = List.of(passing(), payToPublicKey(SIGNATURE), passing());
+
+		CompletionException e = assertThrows(CompletionException.class,
+				() -> new InputValidator(IN_ORDER, broken).validate(checks));
+		assertSame(bug, e.getCause());
+		e = assertThrows(CompletionException.class,
+				() -> new InputValidator(IN_ORDER, broken).validateBlock(checks));
+		assertSame(bug, e.getCause());
+	}
+
+	@Test
+	void blockReportsVerifiedSignatures() throws InterruptedException {
+		List<InputCheck> checks = List.of(payToPublicKey(SIGNATURE), passing(), payToPublicKey(SIGNATURE));
+		assertEquals(List.of(VALID, VALID, VALID), new InputValidator(IN_ORDER).validateBlock(checks).results());
+	}
+
+	@Test
+	void blockFailsOnDeferredSignature() throws InterruptedException {
+		List<InputCheck> checks = List.of(payToPublicKey(SIGNATURE), payToPublicKey(OTHER_SIGNATURE), payToPublicKey(SIGNATURE));
+		assertEquals(List.of(VALID, INVALID, CANCELLED), new InputValidator(IN_ORDER).validateBlock(checks).results());
+		assertEquals(List.of(VALID, INVALID, CANCELLED), new InputValidator(IN_ORDER).validate(checks).results());
+	}
+
+	@Test
+	void blockDoesNotReportUnverifiedSignaturesValid() throws InterruptedException {
+		// the script fails before the signatures are verified, so the bad one never is
+		List<InputCheck> checks = List.of(payToPublicKey(OTHER_SIGNATURE), passing(), failing());
+		ValidationResult result = new InputValidator(IN_ORDER).validateBlock(checks);
+		assertEquals(List.of(CANCELLED, VALID, INVALID), result.results());
+		assertEquals(2, result.firstInvalid());
+	}
+}